@@ -1,32 +1,97 @@
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 import java.io.*;
 
 // Abstract class for common attributes and behavior (Abstraction)
 abstract class User {
     private String name;
     private String email;
-    private List<Notification> notifications = new ArrayList<>();
+    private final NotificationInbox notifications;
+    // Leaves the console messages of this user's actions out, e.g. for a batch replay
+    private volatile boolean quiet;
 
     public User(String name, String email) {
+        this(name, email, NotificationInbox.DEFAULT_CAPACITY);
+    }
+
+    // inboxCapacity is how many notifications are kept before the oldest are overwritten
+    public User(String name, String email, int inboxCapacity) {
         this.name = name;
         this.email = email;
+        this.notifications = new NotificationInbox(inboxCapacity);
     }
 
     // Common methods for notifications
     public void receiveNotification(String message) {
-        Notification notification = new Notification(message);
-        notifications.add(notification);
+        notifications.add(formatNotification(message));
+    }
+
+    // Queue a notification on the background dispatcher; the message is only built there,
+    // so callers on hot paths such as booking do not pay for it
+    public void postNotification(Supplier<String> message) {
+        NotificationDispatcher.getDefault().dispatch(this, message);
+    }
+
+    // Called by NotificationDispatcher with a batch of messages for this user
+    void deliverNotifications(List<String> messages) {
+        List<String> formatted = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            formatted.add(formatNotification(message));
+        }
+        notifications.addAll(formatted);
+    }
+
+    // Hook for roles that decorate their notifications
+    protected String formatNotification(String message) {
+        return message;
     }
 
+    // Show the newest page of notifications
     public void viewNotifications() {
-        if (notifications.isEmpty()) {
+        viewNotifications(1);
+    }
+
+    // Pages are numbered from 1, newest notifications first; shown ones are marked read
+    public void viewNotifications(int page) {
+        // Let notifications still on their way from the dispatcher arrive first
+        NotificationDispatcher.getDefault().awaitDelivery(this, 1000);
+        int total = notifications.size();
+        if (total == 0) {
             System.out.println("No notifications.");
-        } else {
-            System.out.println("Notifications:");
-            for (Notification notification : notifications) {
-                System.out.println("- " + notification);
-            }
+            return;
+        }
+        int pageSize = NotificationInbox.PAGE_SIZE;
+        int pages = (total + pageSize - 1) / pageSize;
+        if (page < 1 || page > pages) {
+            System.out.println("Invalid page. There " + (pages == 1 ? "is 1 page" : "are " + pages + " pages") + ".");
+            return;
+        }
+        int unread = notifications.getUnreadCount();
+        List<Notification> shown = notifications.read((page - 1) * pageSize, pageSize);
+        System.out.println("Notifications (page " + page + " of " + pages + ", " + unread + " unread):");
+        for (Notification notification : shown) {
+            System.out.println("- " + notification);
+        }
+        if (notifications.getDroppedCount() > 0) {
+            System.out.println("(" + notifications.getDroppedCount() + " older notifications were discarded)");
         }
     }
 
@@ -35,6 +100,22 @@ abstract class User {
         System.out.println("All notifications cleared.");
     }
 
+    public int getUnreadNotificationCount() {
+        return notifications.getUnreadCount();
+    }
+
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public NotificationInbox getNotificationInbox() {
+        return notifications;
+    }
+
     // Abstract method for roles
     public abstract void displayRole();
 
@@ -62,6 +143,7 @@ class FileManager {
 
     // Save all flights to a file
     public static void saveFlightsToFile(List<Flight> flights, String filename) {
+        long start = System.nanoTime();
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, false))) {
             File file = new File(filename);
             
@@ -80,46 +162,106 @@ class FileManager {
                 writer.newLine();
             }
     
+            OperationMetrics.FILE_SAVE.record(start, true);
             System.out.println("Flights saved to file successfully.");
         } catch (IOException e) {
+            OperationMetrics.FILE_SAVE.record(start, false);
+            System.out.println("Error saving flights to file: " + e.getMessage());
+        }
+    }
+
+    // Save all flights to a file in the given format
+    public static void saveFlightsToFile(List<Flight> flights, String filename, FlightFileFormat format) {
+        if (format == FlightFileFormat.TSV) {
+            saveFlightsToFile(flights, filename);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            BinaryFlightSnapshot.write(flights, filename);
+            OperationMetrics.FILE_SAVE.record(start, true);
+            System.out.println("Flights saved to snapshot successfully.");
+        } catch (IOException e) {
+            OperationMetrics.FILE_SAVE.record(start, false);
             System.out.println("Error saving flights to file: " + e.getMessage());
         }
     }
-    
 
     // Load flights from a file
     public static List<Flight> loadFlightsFromFile() {
+        return loadFlightsFromFile(FILE_NAME, new LoadReport());
+    }
+
+    // Load flights from a file in the given format
+    public static List<Flight> loadFlightsFromFile(String filename, FlightFileFormat format) {
+        if (format == FlightFileFormat.TSV) {
+            return loadFlightsFromFile(filename, new LoadReport());
+        }
+        long start = System.nanoTime();
+        try {
+            List<Flight> flights = BinaryFlightSnapshot.read(filename);
+            OperationMetrics.FILE_LOAD.record(start, true);
+            System.out.println("Flights loaded successfully from snapshot: " + filename);
+            return flights;
+        } catch (IOException e) {
+            OperationMetrics.FILE_LOAD.record(start, false);
+            System.out.println("Error loading flights from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Load flights from the given file, collecting invalid lines into the report instead of throwing
+    public static List<Flight> loadFlightsFromFile(String filename, LoadReport report) {
         List<Flight> flights = new ArrayList<>();
+        FlightLineParser parser = new FlightLineParser(report);
+        long start = System.nanoTime();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename), 1 << 16)) {
             String line;
+            int lineNumber = 0;
             boolean isHeader = true;
 
             while ((line = reader.readLine()) != null) {
-                line = line.trim(); // Remove any leading or trailing spaces
-                if (line.isEmpty()) {
-                    continue; // Skip empty lines
-                }
-
-                if (isHeader) {
+                lineNumber++;
+                if (isHeader && !FlightLineParser.isBlank(line)) {
                     isHeader = false; // Skip the header line
                     continue;
                 }
 
-                try {
-                    flights.add(parseFlightFromFile(line));
-                } catch (IllegalArgumentException e) {
-                    System.out.println("Skipped invalid flight data: " + e.getMessage());
+                Flight flight = parser.parse(line, lineNumber);
+                if (flight != null) {
+                    flights.add(flight);
                 }
             }
-            System.out.println("Flights loaded successfully from file: " + FILE_NAME);
+            report.finish(System.nanoTime() - start);
+            OperationMetrics.FILE_LOAD.record(start, true);
+            report.print(System.out);
+            System.out.println("Flights loaded successfully from file: " + filename);
         } catch (IOException e) {
+            OperationMetrics.FILE_LOAD.record(start, false);
             System.out.println("Error loading flights from file: " + e.getMessage());
         }
 
         return flights;
     }
 
+    // Load flights by memory-mapping the file and parsing newline-aligned chunks on all cores.
+    // Produces the same flights, in the same order, as loadFlightsFromFile.
+    public static List<Flight> loadFlightsFromFileParallel(String filename, LoadReport report) {
+        long start = System.nanoTime();
+        try {
+            List<Flight> flights = new ParallelFlightLoader(filename).load(report);
+            OperationMetrics.FILE_LOAD.record(start, true);
+            report.print(System.out);
+            System.out.println("Flights loaded successfully from file: " + filename);
+            return flights;
+        } catch (IOException e) {
+            OperationMetrics.FILE_LOAD.record(start, false);
+            System.out.println("Error loading flights from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     // Delete the file
     public static void deleteFile() {
         File file = new File(FILE_NAME);
@@ -145,40 +287,269 @@ class FileManager {
                flight.getAirplane().getAirplaneId() + "\t" +  // Airplane ID
                flight.getAirplane().getAirplaneModel();  // Airplane Model
     }
+}
+
+// On-disk formats understood by FileManager
+enum FlightFileFormat {
+    TSV,    // 12-column tab-separated text (flights.txt)
+    BINARY; // BinaryFlightSnapshot
+
+    // Pick the format from the file contents, falling back to TSV
+    public static FlightFileFormat detect(String filename) {
+        return BinaryFlightSnapshot.isSnapshot(filename) ? BINARY : TSV;
+    }
+}
+
+// Single-pass parser for one line of the tab-separated flights file.
+// Fields are located by scanning for tabs and trimmed by index, so the only
+// allocations are the strings a Flight keeps; the seat count is parsed in place.
+// Bad lines are recorded in the LoadReport and yield null rather than an exception.
+class FlightLineParser {
+    static final int FIELD_COUNT = 12;
+
+    private final LoadReport report;
+    // Start/end offsets of each field in the current line, reused for every line
+    private final int[] starts = new int[FIELD_COUNT];
+    private final int[] ends = new int[FIELD_COUNT];
 
-    // Helper method to parse a Flight object from a line in the file
-    private static Flight parseFlightFromFile(String line) {
-        // Split using tabs as the delimiter
-        String[] parts = line.split("\t");
+    public FlightLineParser(LoadReport report) {
+        this.report = report;
+    }
 
-        // Ensure the line has exactly 12 parts (matching the file format)
-        if (parts.length != 12) {
-            throw new IllegalArgumentException("Invalid flight data: " + line);
+    // Parse a line, or return null (after recording why) if it is blank or invalid
+    public Flight parse(String line, int lineNumber) {
+        int lineStart = 0;
+        int lineEnd = line.length();
+        while (lineStart < lineEnd && line.charAt(lineStart) <= ' ') {
+            lineStart++;
+        }
+        while (lineEnd > lineStart && line.charAt(lineEnd - 1) <= ' ') {
+            lineEnd--;
+        }
+        if (lineStart == lineEnd) {
+            report.blankLine();
+            return null; // Skip empty lines
         }
 
-        try {
-            // Parse the fields
-            String flightId = parts[0].trim();
-            Airport origin = new Airport(parts[1].trim(), parts[2].trim(), parts[3].trim());
-            Airport destination = new Airport(parts[4].trim(), parts[5].trim(), parts[6].trim());
-            String departureTime = parts[7].trim();
-            String arrivalTime = parts[8].trim();
-            int availableSeats = Integer.parseInt(parts[9].trim());
-            Airplane airplane = new Airplane(parts[10].trim(), parts[11].trim(), availableSeats);
-
-            // Create and return the Flight object
-            return new Flight(flightId, origin, destination, departureTime, arrivalTime, airplane);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Error parsing flight data: " + line + " - " + e.getMessage());
+        int field = 0;
+        int fieldStart = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || line.charAt(i) == '\t') {
+                if (field == FIELD_COUNT) {
+                    report.invalidLine(lineNumber, "expected " + FIELD_COUNT + " fields", line);
+                    return null;
+                }
+                setField(line, field++, fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        if (field != FIELD_COUNT) {
+            report.invalidLine(lineNumber, "expected " + FIELD_COUNT + " fields but found " + field, line);
+            return null;
+        }
+
+        int seats = parseSeats(line, starts[9], ends[9]);
+        if (seats < 0) {
+            report.invalidLine(lineNumber, seats == -1 ? "seats is not a number" : "seats cannot be negative", line);
+            return null;
+        }
+
+        Airport origin = airport(line, 1);
+        Airport destination = airport(line, 4);
+        Airplane airplane = airplane(line, seats);
+        report.parsedLine();
+        return new Flight(field(line, 0), origin, destination, field(line, 7), field(line, 8), airplane, seats);
+    }
+
+    static boolean isBlank(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setField(String line, int field, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        starts[field] = start;
+        ends[field] = end;
+    }
+
+    private String field(String line, int field) {
+        return line.substring(starts[field], ends[field]);
+    }
+
+    // Shared airport for the code at codeField; name and location are only copied out when they
+    // differ from the registered ones
+    private Airport airport(String line, int codeField) {
+        String code = field(line, codeField);
+        Airport airport = AirportDirectory.find(code);
+        if (airport != null && matches(line, codeField + 1, airport.getName())
+                && matches(line, codeField + 2, airport.getLocation())) {
+            return airport;
+        }
+        return AirportDirectory.resolve(code, field(line, codeField + 1), field(line, codeField + 2));
+    }
+
+    private Airplane airplane(String line, int seats) {
+        String airplaneId = field(line, 10);
+        Airplane airplane = Fleet.find(airplaneId);
+        if (airplane != null && matches(line, 11, airplane.getModel())) {
+            return airplane;
+        }
+        return Fleet.resolveForSeats(airplaneId, field(line, 11), seats);
+    }
+
+    // Whether the field holds exactly this value, without copying it out
+    private boolean matches(String line, int field, String value) {
+        int length = ends[field] - starts[field];
+        return value != null && value.length() == length && line.regionMatches(starts[field], value, 0, length);
+    }
+
+    // Returns the parsed value, -1 if the field is not an int, or -2 if it is negative
+    private static int parseSeats(String line, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        boolean negative = false;
+        char first = line.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++start == end) {
+                return -1;
+            }
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        if (negative && value != 0) {
+            return -2;
+        }
+        return (int) value;
+    }
+}
+
+// Summary of a flights file load: counts, timing and the first few invalid lines
+class LoadReport {
+    // Only this many invalid lines are kept verbatim; the rest are just counted
+    private static final int MAX_RECORDED_ERRORS = 100;
+    private static final int MAX_PRINTED_ERRORS = 10;
+    // Throughput the single-threaded loader is expected to sustain on a warm JVM;
+    // loads that fall below it are flagged in the summary
+    static final long TARGET_LINES_PER_SECOND = 500_000;
+    // Smaller loads are over before the JIT has warmed up, so their rate says little
+    static final long MIN_LINES_FOR_TARGET = 100_000;
+
+    private long parsedLines;
+    private long blankLines;
+    private long invalidLines;
+    private long elapsedNanos;
+    // Line numbers are kept apart from the message so partial reports can be rebased when merged
+    private final List<Integer> errorLineNumbers = new ArrayList<>();
+    private final List<String> errorMessages = new ArrayList<>();
+
+    void parsedLine() {
+        parsedLines++;
+    }
+
+    void blankLine() {
+        blankLines++;
+    }
+
+    void invalidLine(int lineNumber, String reason, String line) {
+        invalidLines++;
+        if (errorMessages.size() < MAX_RECORDED_ERRORS) {
+            errorLineNumbers.add(lineNumber);
+            errorMessages.add(reason + ": " + line);
+        }
+    }
+
+    // Merge the counts and errors of a report covering later lines into this one;
+    // lineOffset is the number of lines that precede the other report's first line
+    void add(LoadReport other, int lineOffset) {
+        parsedLines += other.parsedLines;
+        blankLines += other.blankLines;
+        invalidLines += other.invalidLines;
+        for (int i = 0; i < other.errorMessages.size() && errorMessages.size() < MAX_RECORDED_ERRORS; i++) {
+            errorLineNumbers.add(other.errorLineNumbers.get(i) + lineOffset);
+            errorMessages.add(other.errorMessages.get(i));
+        }
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getParsedLines() {
+        return parsedLines;
+    }
+
+    public long getInvalidLines() {
+        return invalidLines;
+    }
+
+    public long getBlankLines() {
+        return blankLines;
+    }
+
+    public List<String> getErrors() {
+        List<String> errors = new ArrayList<>(errorMessages.size());
+        for (int i = 0; i < errorMessages.size(); i++) {
+            errors.add("line " + errorLineNumbers.get(i) + ": " + errorMessages.get(i));
+        }
+        return errors;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getLinesPerSecond() {
+        long lines = parsedLines + invalidLines;
+        return elapsedNanos == 0 ? 0 : lines * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public void print(PrintStream out) {
+        List<String> errors = getErrors();
+        for (int i = 0; i < errors.size() && i < MAX_PRINTED_ERRORS; i++) {
+            out.println("Skipped invalid flight data: " + errors.get(i));
+        }
+        if (invalidLines > MAX_PRINTED_ERRORS) {
+            out.println("... and " + (invalidLines - MAX_PRINTED_ERRORS) + " more invalid lines.");
         }
+        out.println("Parsed " + parsedLines + " flights (" + invalidLines + " invalid lines) in "
+                + (elapsedNanos / 1_000_000) + " ms, " + (long) getLinesPerSecond() + " lines/s.");
+        if (parsedLines + invalidLines >= MIN_LINES_FOR_TARGET && !meetsTarget()) {
+            out.println("Warning: load throughput is below the target of " + TARGET_LINES_PER_SECOND + " lines/s.");
+        }
+    }
+
+    // Only meaningful for loads of at least MIN_LINES_FOR_TARGET lines
+    public boolean meetsTarget() {
+        return getLinesPerSecond() >= TARGET_LINES_PER_SECOND;
     }
 }
 
-// Airplane class to represent individual airplanes
+// Airplane class to represent individual airplanes. Instances are shared through Fleet,
+// so they cannot be changed; register a new one to change a model or capacity.
 class Airplane {
-    private String airplaneId;
-    private String model;
-    private int capacity;
+    private final String airplaneId;
+    private final String model;
+    private final int capacity;
 
     // Constructor
     public Airplane(String airplaneId, String model, int capacity) {
@@ -190,49 +561,40 @@ class Airplane {
         this.capacity = capacity;
     }
 
-    // Getters and setters
+    // Getters
     public String getAirplaneId() {
         return airplaneId;
     }
 
-    public void setAirplaneId(String airplaneId) {
-        this.airplaneId = airplaneId;
-    }
-
     public String getModel() {
         return model;
     }
 
-    public void setModel(String model) {
-        this.model = model;
-    }
-
     public int getCapacity() {
         return capacity;
     }
 
-    public void setCapacity(int capacity) {
-        if (capacity < 0) {
-            throw new IllegalArgumentException("Capacity cannot be negative.");
-        }
-        this.capacity = capacity;
-    }
-
     public String getAirplaneModel() {
         return model;
     }
 
+    // Same model and capacity as given
+    boolean describes(String model, int capacity) {
+        return Objects.equals(this.model, model) && this.capacity == capacity;
+    }
+
     @Override
     public String toString() {
         return "Airplane ID: " + airplaneId + ", Model: " + model + ", Capacity: " + capacity;
     }
 }
 
-// Airport class to represent an airport
+// Airport class to represent an airport. Instances are shared through AirportDirectory,
+// so they cannot be changed; register a new one to rename or move an airport.
 class Airport {
-    private String airportCode;
-    private String name;
-    private String location;
+    private final String airportCode;
+    private final String name;
+    private final String location;
 
     // Constructor
     public Airport(String airportCode, String name, String location) {
@@ -241,29 +603,22 @@ class Airport {
         this.location = location;
     }
 
-    // Getters and setters
+    // Getters
     public String getAirportCode() {
         return airportCode;
     }
 
-    public void setAirportCode(String airportCode) {
-        this.airportCode = airportCode;
-    }
-
     public String getName() {
         return name;
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
-
     public String getLocation() {
         return location;
     }
 
-    public void setLocation(String location) {
-        this.location = location;
+    // Same name and location as given
+    boolean describes(String name, String location) {
+        return Objects.equals(this.name, name) && Objects.equals(this.location, location);
     }
 
     @Override
@@ -272,12 +627,315 @@ class Airport {
     }
 }
 
+// Canonical Airport objects keyed by airport code, so every flight between the same
+// airports shares one instance. Codes are matched case-insensitively. Registering a
+// code with a different name or location replaces its entry, so flights created from
+// then on get the new data; flights created before keep the airport they were given.
+class AirportDirectory {
+    private static final ConcurrentHashMap<String, Airport> airports = new ConcurrentHashMap<>();
+
+    // The canonical airport for this code and data, registering one built from the arguments if needed
+    public static Airport resolve(String airportCode, String name, String location) {
+        if (airportCode == null) {
+            return new Airport(null, name, location);
+        }
+        Airport existing = airports.get(normalizeCode(airportCode));
+        if (existing != null && existing.describes(name, location)) {
+            return existing;
+        }
+        return airports.compute(normalizeCode(airportCode), (k, current) ->
+                current != null && current.describes(name, location) ? current : new Airport(airportCode, name, location));
+    }
+
+    // The canonical instance for an airport with the same code and data (registering this one if it differs)
+    public static Airport intern(Airport airport) {
+        if (airport == null || airport.getAirportCode() == null) {
+            return airport;
+        }
+        return airports.compute(normalizeCode(airport.getAirportCode()), (k, current) ->
+                current != null && current.describes(airport.getName(), airport.getLocation()) ? current : airport);
+    }
+
+    // The registered airport for this code, or null
+    public static Airport find(String airportCode) {
+        return airportCode == null ? null : airports.get(normalizeCode(airportCode));
+    }
+
+    public static int size() {
+        return airports.size();
+    }
+
+    private static String normalizeCode(String airportCode) {
+        return airportCode.toUpperCase(Locale.ROOT);
+    }
+}
+
+// Canonical Airplane objects keyed by airplane ID. Registering an ID with a different
+// model or capacity replaces its entry, the same way AirportDirectory does; flights keep
+// their own seat counts.
+class Fleet {
+    private static final ConcurrentHashMap<String, Airplane> airplanes = new ConcurrentHashMap<>();
+
+    // The canonical airplane for this ID and data, registering one built from the arguments if needed
+    public static Airplane resolve(String airplaneId, String model, int capacity) {
+        if (airplaneId == null) {
+            return new Airplane(null, model, capacity);
+        }
+        Airplane existing = airplanes.get(airplaneId);
+        if (existing != null && existing.describes(model, capacity)) {
+            return existing;
+        }
+        return airplanes.compute(airplaneId, (k, current) ->
+                current != null && current.describes(model, capacity) ? current : new Airplane(airplaneId, model, capacity));
+    }
+
+    // The canonical instance for an airplane with the same ID and data (registering this one if it differs)
+    public static Airplane intern(Airplane airplane) {
+        if (airplane == null || airplane.getAirplaneId() == null) {
+            return airplane;
+        }
+        return airplanes.compute(airplane.getAirplaneId(), (k, current) ->
+                current != null && current.describes(airplane.getModel(), airplane.getCapacity()) ? current : airplane);
+    }
+
+    // For the file, snapshot and journal formats, which record the flight's seats but not the
+    // airplane's capacity: a known airplane keeps its capacity and is only re-registered when
+    // its model changes; a new one takes the seat count as its capacity
+    public static Airplane resolveForSeats(String airplaneId, String model, int seats) {
+        Airplane existing = find(airplaneId);
+        return resolve(airplaneId, model, existing != null ? existing.getCapacity() : seats);
+    }
+
+    // The registered airplane for this ID, or null
+    public static Airplane find(String airplaneId) {
+        return airplaneId == null ? null : airplanes.get(airplaneId);
+    }
+
+    public static int size() {
+        return airplanes.size();
+    }
+}
+
+// Reverse index from flight to the customers booked on it (the passenger manifest).
+// Customer booking and cancellation keep it up to date, so manifest queries, boarding
+// counts and the cancellation fan-out only touch the passengers of that one flight.
+// Flights are keyed by normalized ID, so an updated flight keeps its passengers. Each
+// manifest also remembers the Flight object its passengers' seats are on; a schedule
+// reload replaces those objects without moving anyone, and closeReplaced then closes
+// the manifests left on them.
+class PassengerManifest {
+    private static final ConcurrentHashMap<String, Manifest> manifests = new ConcurrentHashMap<>();
+
+    // Record seats for a customer on one flight; see the list version
+    static Flight add(Flight flight, Customer customer, int seats, Runnable onAdded) {
+        return add(Collections.singletonList(flight), customer, seats, onAdded);
+    }
+
+    // Record seats for a customer on every flight of a booking as one step. onAdded runs
+    // while all the manifests are still held, so a cancellation (which closes the
+    // manifest before telling the passengers) sees either the whole booking, the
+    // customer's own booking list included, or none of it. Returns null on success, or
+    // the first flight that has left the schedule, in which case nothing is recorded.
+    static Flight add(List<Flight> flights, Customer customer, int seats, Runnable onAdded) {
+        // Locked in key order so two bookings sharing flights cannot deadlock
+        Map<String, Manifest> held = new TreeMap<>();
+        for (Flight flight : flights) {
+            String key = key(flight.getFlightId());
+            if (!held.containsKey(key)) {
+                // Only scheduled flights get a manifest; cancelled and unknown IDs never do
+                if (FlightSchedule.findFlightById(flight.getFlightId()) == null) {
+                    return flight;
+                }
+                held.put(key, manifests.computeIfAbsent(key, k -> new Manifest()));
+            }
+        }
+        return addHeld(new ArrayList<>(held.values()), 0, held, flights, customer, seats, onAdded);
+    }
+
+    private static Flight addHeld(List<Manifest> toLock, int index, Map<String, Manifest> held, List<Flight> flights,
+            Customer customer, int seats, Runnable onAdded) {
+        if (index < toLock.size()) {
+            synchronized (toLock.get(index)) {
+                return addHeld(toLock, index + 1, held, flights, customer, seats, onAdded);
+            }
+        }
+        for (Flight flight : flights) {
+            String key = key(flight.getFlightId());
+            Manifest manifest = held.get(key);
+            // The seats were taken on this Flight object; if it has been replaced meanwhile
+            // they are not the passengers' seats on the scheduled one. A manifest still on
+            // another object belongs to a reload that has not closed it yet.
+            if (manifest.closed || !FlightSchedule.isScheduled(flight)
+                    || (manifest.flight != null && manifest.flight != flight)) {
+                closeIfUnscheduled(key, manifest);
+                return flight;
+            }
+        }
+        for (Flight flight : flights) {
+            Manifest manifest = held.get(key(flight.getFlightId()));
+            manifest.passengers.merge(customer, seats, Integer::sum);
+            manifest.seats += seats;
+            manifest.flight = flight;
+        }
+        onAdded.run();
+        return null;
+    }
+
+    // Take seats off a customer's entry, dropping the entry when none are left. Returns
+    // the flight now holding those seats (the replacement if the flight was rescheduled),
+    // or null if the customer had none left on it.
+    static Flight remove(Flight flight, Customer customer, int seats) {
+        Manifest manifest = manifests.get(key(flight.getFlightId()));
+        if (manifest == null) {
+            return null;
+        }
+        synchronized (manifest) {
+            Integer booked = manifest.passengers.get(customer);
+            if (booked == null) {
+                return null;
+            }
+            int removed = Math.min(booked, seats);
+            if (booked > removed) {
+                manifest.passengers.put(customer, booked - removed);
+            } else {
+                manifest.passengers.remove(customer);
+            }
+            manifest.seats -= removed;
+            // An update moves the seats while holding the manifest, so this is the right
+            // flight; after a reload it is the replaced one, which still has the seats
+            return manifest.flight;
+        }
+    }
+
+    // Run a schedule update of the flight while holding its manifest, so bookings cannot
+    // be recorded between the passengers moving and the new flight becoming visible
+    static <T> T holding(String flightId, Supplier<T> update) {
+        String key = key(flightId);
+        Manifest manifest = manifests.computeIfAbsent(key, k -> new Manifest());
+        synchronized (manifest) {
+            try {
+                return update.get();
+            } finally {
+                closeIfUnscheduled(key, manifest);
+            }
+        }
+    }
+
+    // Called from an update through holding: take the passengers' seats on the flight
+    // replacing theirs, in booking order. Those who no longer fit (a smaller airplane)
+    // are taken off the manifest. Seats the new Flight object already has booked stay
+    // as they are; the same object passed again keeps everyone without reserving.
+    static void moveTo(Flight previous, Flight updated, Map<Customer, Integer> kept, Map<Customer, Integer> bumped) {
+        Manifest manifest = manifests.get(key(updated.getFlightId()));
+        if (manifest == null) {
+            return;
+        }
+        synchronized (manifest) {
+            manifest.flight = updated;
+            Iterator<Map.Entry<Customer, Integer>> passengers = manifest.passengers.entrySet().iterator();
+            while (passengers.hasNext()) {
+                Map.Entry<Customer, Integer> passenger = passengers.next();
+                if (previous == updated || updated.reserveUnscheduled(passenger.getValue())) {
+                    kept.put(passenger.getKey(), passenger.getValue());
+                } else {
+                    bumped.put(passenger.getKey(), passenger.getValue());
+                    manifest.seats -= passenger.getValue();
+                    passengers.remove();
+                }
+            }
+        }
+    }
+
+    // A manifest made for a flight that has left the schedule meanwhile; nobody else will
+    // close it. Called with the manifest held.
+    private static void closeIfUnscheduled(String key, Manifest manifest) {
+        if (!manifest.closed && manifest.passengers.isEmpty() && FlightSchedule.findFlightById(key) == null) {
+            manifest.closed = true;
+            manifests.remove(key, manifest);
+        }
+    }
+
+    // Called once a flight has been cancelled: closes its manifest and returns the
+    // passengers it had, for FlightFanOut to process
+    static Map<Customer, Integer> close(String flightId) {
+        Manifest manifest = manifests.remove(key(flightId));
+        if (manifest == null) {
+            return Collections.emptyMap();
+        }
+        synchronized (manifest) {
+            manifest.closed = true;
+            return new LinkedHashMap<>(manifest.passengers);
+        }
+    }
+
+    // Called by FlightSchedule.setFlights once the new schedule is visible: closes every
+    // manifest whose passengers hold seats on a Flight object that is no longer scheduled
+    // and returns those passengers by that flight, for FlightFanOut to process
+    static Map<Flight, Map<Customer, Integer>> closeReplaced() {
+        Map<Flight, Map<Customer, Integer>> replaced = new LinkedHashMap<>();
+        for (Map.Entry<String, Manifest> entry : manifests.entrySet()) {
+            Manifest manifest = entry.getValue();
+            synchronized (manifest) {
+                if (manifest.closed || manifest.flight == null || FlightSchedule.isScheduled(manifest.flight)) {
+                    continue;
+                }
+                manifest.closed = true;
+                manifests.remove(entry.getKey(), manifest);
+                if (!manifest.passengers.isEmpty()) {
+                    replaced.put(manifest.flight, new LinkedHashMap<>(manifest.passengers));
+                }
+            }
+        }
+        return replaced;
+    }
+
+    // Customers booked on a flight with their seat counts, in booking order
+    public static Map<Customer, Integer> getPassengers(String flightId) {
+        Manifest manifest = flightId == null ? null : manifests.get(key(flightId));
+        if (manifest == null) {
+            return Collections.emptyMap();
+        }
+        synchronized (manifest) {
+            return new LinkedHashMap<>(manifest.passengers);
+        }
+    }
+
+    // Seats booked on a flight by all its passengers
+    public static int getBoardingCount(String flightId) {
+        Manifest manifest = flightId == null ? null : manifests.get(key(flightId));
+        if (manifest == null) {
+            return 0;
+        }
+        synchronized (manifest) {
+            return manifest.seats;
+        }
+    }
+
+    private static String key(String flightId) {
+        return flightId.toLowerCase(Locale.ROOT);
+    }
+
+    // One flight's passengers; guarded by itself
+    private static final class Manifest {
+        // Customers do not override equals, so passengers are matched by identity
+        final Map<Customer, Integer> passengers = new LinkedHashMap<>();
+        int seats;
+        boolean closed;
+        // The Flight object the passengers' seats are on; null until the first booking
+        Flight flight;
+    }
+}
+
 // Manager class extending User (Inheritance)
 class Manager extends User {
     public Manager(String name, String email) {
         super(name, email);
     }
 
+    public Manager(String name, String email, int inboxCapacity) {
+        super(name, email, inboxCapacity);
+    }
+
     @Override
     public void displayRole() {
         System.out.println("Role: Manager");
@@ -287,19 +945,24 @@ class Manager extends User {
     public void manageFlight(Flight flight, String action) throws Exception {
         switch (action.toLowerCase()) {
             case "add":
-                FlightSchedule.addFlight(flight);
+                FlightSchedule.addFlight(flight, !isQuiet());
                 break;
             case "update":
-                FlightSchedule.updateFlight(flight);
+                FlightSchedule.updateFlight(flight, !isQuiet());
                 break;
             case "cancel":
-                FlightSchedule.cancelFlight(flight.getFlightId());
+                cancelFlight(flight.getFlightId());
                 break;
             default:
                 throw new Exception("Invalid action. Use 'add', 'update', or 'cancel'.");
         }
     }
 
+    // Cancelling needs only the flight ID
+    public void cancelFlight(String flightId) throws Exception {
+        FlightSchedule.cancelFlight(flightId, !isQuiet());
+    }
+
     // Generate report
     public void generateReport() {
         List<Flight> flights = FlightSchedule.getFlights();
@@ -308,36 +971,71 @@ class Manager extends User {
             return;
         }
 
-        System.out.println("Flight Reports:");
-        for (Flight flight : flights) {
-            System.out.println("Flight ID: " + flight.getFlightId());
-            System.out.println("Origin: " + flight.getOrigin());
-            System.out.println("Destination: " + flight.getDestination());
-            System.out.println("Departure: " + flight.getDepartureTime());
-            System.out.println("Arrival: " + flight.getArrivalTime());
-            System.out.println("Available Seats: " + flight.getAvailableSeats());
-            System.out.println("Booked Seats: " + (flight.getTotalSeats() - flight.getAvailableSeats()));
-            System.out.println("----------------------------");
+        // Booked seats come from the running counters, read once at a single point in time
+        BookingStatistics.Snapshot bookings = FlightSchedule.getBookingStatistics();
+        // Not closed: that would close System.out
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), FlightReportWriter.BUFFER_SIZE);
+        try {
+            new FlightReportWriter(ReportFormat.TEXT).write(flights, bookings, out);
+        } catch (IOException e) {
+            System.out.println("Error writing report: " + e.getMessage());
         }
     }
 
-    public void checkLowSeatAvailability(Flight flight) {
-        if (flight.getAvailableSeats() < 10) {
-            receiveNotification(
-                    "Low seats alert: Flight " + flight.getFlightId() + " has less than 10 seats available.");
-        }
+    // Write the report to a file; the format follows the extension (see ReportFormat.detect)
+    public void generateReport(String filename) {
+        generateReport(filename, ReportFormat.detect(filename));
     }
 
-    public void sendDailySummary() {
+    // Write the report to a file in the given format
+    public void generateReport(String filename, ReportFormat format) {
         List<Flight> flights = FlightSchedule.getFlights();
-        if (flights.isEmpty()) {
-            receiveNotification("Daily Summary: No flights were booked today.");
-        } else {
-            StringBuilder summary = new StringBuilder("Daily Summary:\n");
-            for (Flight flight : flights) {
-                summary.append("Flight ID: ").append(flight.getFlightId())
-                        .append(", Booked Seats: ")
-                        .append(flight.getTotalSeats() - flight.getAvailableSeats())
+        BookingStatistics.Snapshot bookings = FlightSchedule.getBookingStatistics();
+        try {
+            new FlightReportWriter(format).writeToFile(flights, bookings, filename);
+            System.out.println("Report for " + flights.size() + " flights written to " + filename + " (" + format + ").");
+        } catch (IOException e) {
+            System.out.println("Error writing report: " + e.getMessage());
+        }
+    }
+
+    // Print who is booked on a flight and how many seats they hold
+    public void viewPassengerManifest(String flightId) {
+        Map<Customer, Integer> passengers = PassengerManifest.getPassengers(flightId);
+        if (passengers.isEmpty()) {
+            System.out.println("No passengers booked on flight " + flightId + ".");
+            return;
+        }
+        System.out.println("Passenger Manifest for flight " + flightId + " ("
+                + PassengerManifest.getBoardingCount(flightId) + " seats booked):");
+        for (Map.Entry<Customer, Integer> passenger : passengers.entrySet()) {
+            System.out.println("- " + passenger.getKey().getName() + " <" + passenger.getKey().getEmail() + ">: "
+                    + passenger.getValue() + (passenger.getValue() == 1 ? " seat" : " seats"));
+        }
+    }
+
+    public void checkLowSeatAvailability(Flight flight) {
+        if (flight.getAvailableSeats() < 10) {
+            postNotification(
+                    () -> "Low seats alert: Flight " + flight.getFlightId() + " has less than 10 seats available.");
+        }
+    }
+
+    public void sendDailySummary() {
+        BookingStatistics.Snapshot bookings = FlightSchedule.getBookingStatistics();
+        if (bookings.getFlightCount() == 0) {
+            receiveNotification("Daily Summary: No flights were booked today.");
+        } else {
+            StringBuilder summary = new StringBuilder("Daily Summary:\n");
+            String today = LocalDate.now().toString();
+            Long departingToday = bookings.getBookedSeatsByDay().get(today);
+            summary.append("Total Booked Seats: ").append(bookings.getTotalBookedSeats())
+                    .append(", Departing Today (").append(today).append("): ")
+                    .append(departingToday == null ? 0 : departingToday).append("\n");
+            for (Map.Entry<String, Long> flight : bookings.getBookedSeatsByFlight().entrySet()) {
+                summary.append("Flight ID: ").append(flight.getKey())
+                        .append(", Booked Seats: ")
+                        .append(flight.getValue())
                         .append("\n");
             }
             receiveNotification(summary.toString());
@@ -353,24 +1051,48 @@ class Flight {
     private Airport destination;
     private String departureTime;
     private String arrivalTime;
-    private int availableSeats;
+    // Parsed forms of the two times (see FlightTimes), kept in step with the strings
+    private long departureInstant;
+    private long arrivalInstant;
+    // Seat counter updated with compare-and-set so concurrent bookings never oversell. The
+    // low 32 bits are the available seats, the high 32 bits count the changes (the seat
+    // version), so the journal can tell which seat records a flight record already includes.
+    private final AtomicLong seatState = new AtomicLong();
     private int totalSeats;
     private Airplane airplane; // Reference to Airplane
+    // Booking counters of the schedule this flight is in, told about every seat change
+    private volatile BookingStatistics statistics;
+    // Which numbered seats are taken; created on first use, as most flights never need one
+    private volatile SeatMap seatMap;
+    // Replaced or cancelled as far as the journal is concerned
+    private volatile boolean journalRetired;
+    // Sequence of the journal record that put this object in the schedule (0 once it is in
+    // a snapshot); seat records carry it so replay can tell objects with the same ID apart
+    private volatile long journalIncarnation;
 
     // Constructor
     public Flight(String flightId, Airport origin, Airport destination, String departureTime, String arrivalTime,
             Airplane airplane) {
-        if (airplane.getCapacity() < 0) {
+        this(flightId, origin, destination, departureTime, arrivalTime, airplane, airplane.getCapacity());
+    }
+
+    // Constructor for a flight whose seat count differs from the (shared) airplane's capacity
+    public Flight(String flightId, Airport origin, Airport destination, String departureTime, String arrivalTime,
+            Airplane airplane, int totalSeats) {
+        if (totalSeats < 0) {
             throw new IllegalArgumentException("Airplane capacity cannot be negative.");
         }
         this.flightId = flightId;
-        this.origin = origin;
-        this.destination = destination;
+        // Airports and airplanes are shared through their registries
+        this.origin = AirportDirectory.intern(origin);
+        this.destination = AirportDirectory.intern(destination);
         this.departureTime = departureTime;
         this.arrivalTime = arrivalTime;
-        this.totalSeats = airplane.getCapacity();
-        this.availableSeats = airplane.getCapacity();
-        this.airplane = airplane;
+        this.departureInstant = FlightTimes.parse(departureTime);
+        this.arrivalInstant = FlightTimes.parse(arrivalTime);
+        this.totalSeats = totalSeats;
+        this.seatState.set(totalSeats);
+        this.airplane = Fleet.intern(airplane);
     }
 
     // Getters and setters
@@ -391,7 +1113,7 @@ class Flight {
     }
 
     public void setOrigin(Airport origin) {
-        this.origin = origin;
+        this.origin = AirportDirectory.intern(origin);
     }
 
     public Airport getDestination() {
@@ -399,7 +1121,7 @@ class Flight {
     }
 
     public void setDestination(Airport destination) {
-        this.destination = destination;
+        this.destination = AirportDirectory.intern(destination);
     }
 
     public String getDepartureTime() {
@@ -408,6 +1130,7 @@ class Flight {
 
     public void setDepartureTime(String departureTime) {
         this.departureTime = departureTime;
+        this.departureInstant = FlightTimes.parse(departureTime);
     }
 
     public String getArrivalTime() {
@@ -416,17 +1139,168 @@ class Flight {
 
     public void setArrivalTime(String arrivalTime) {
         this.arrivalTime = arrivalTime;
+        this.arrivalInstant = FlightTimes.parse(arrivalTime);
+    }
+
+    // Departure as minutes since 1970-01-01 00:00, or FlightTimes.UNKNOWN
+    public long getDepartureInstant() {
+        return departureInstant;
+    }
+
+    // Arrival as minutes since 1970-01-01 00:00, or FlightTimes.UNKNOWN
+    public long getArrivalInstant() {
+        return arrivalInstant;
     }
 
     public int getAvailableSeats() {
-        return availableSeats;
+        return seatsOf(seatState.get());
     }
 
     public void setAvailableSeats(int availableSeats) {
         if (availableSeats < 0) {
             throw new IllegalArgumentException("Available seats cannot be negative.");
         }
-        this.availableSeats = availableSeats;
+        seatState.getAndUpdate(state -> nextState(state, availableSeats));
+        seatsChanged();
+    }
+
+    // Available seats and seat version read together in one atomic step
+    long getSeatState() {
+        return seatState.get();
+    }
+
+    static int seatsOf(long state) {
+        return (int) state;
+    }
+
+    static long versionOf(long state) {
+        return state >>> 32;
+    }
+
+    // The version wraps to 1 (never 0) after 2^32 - 1 changes; the journal resets it on
+    // every compaction long before that
+    private static long nextState(long state, int seats) {
+        long version = versionOf(state) == 0xFFFFFFFFL ? 1 : versionOf(state) + 1;
+        return (version << 32) | (seats & 0xFFFFFFFFL);
+    }
+
+    // Atomically take n seats; returns false (and takes nothing) if fewer than n are left
+    public boolean tryReserve(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of seats to reserve must be positive.");
+        }
+        FlightJournal journal = FlightSchedule.getJournal();
+        if (journal == null) {
+            return reserveSeats(n) != 0;
+        }
+        long sequence;
+        journal.lockShared();
+        try {
+            // The CAS takes no lock; the version it produces orders the record among this
+            // flight's other seat records, whatever order they reach the journal in
+            long version = reserveSeats(n);
+            if (version == 0) {
+                return false;
+            }
+            sequence = journal.logReserve(this, n, version);
+        } finally {
+            journal.unlockShared();
+        }
+        journal.awaitSeatChange(sequence);
+        return true;
+    }
+
+    // Atomically give back n previously reserved seats; waitlisted customers get them first
+    public void release(int n) {
+        release(n, true);
+    }
+
+    // FlightWaitlist itself passes false when it hands back seats it could not use
+    void release(int n, boolean promoteWaitlist) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of seats to release must be positive.");
+        }
+        FlightJournal journal = FlightSchedule.getJournal();
+        if (journal == null) {
+            releaseSeats(n);
+        } else {
+            long sequence;
+            journal.lockShared();
+            try {
+                sequence = journal.logRelease(this, n, releaseSeats(n));
+            } finally {
+                journal.unlockShared();
+            }
+            journal.awaitSeatChange(sequence);
+        }
+        // Seats freed on a replaced Flight object are of no use to the waitlist
+        if (promoteWaitlist && FlightSchedule.isScheduled(this)) {
+            FlightWaitlist.promote(this);
+        }
+    }
+
+    // Take seats on a flight that is not visible in the schedule yet, without a journal
+    // record; FlightSchedule journals the whole flight, these seats included, instead
+    boolean reserveUnscheduled(int n) {
+        return reserveSeats(n) != 0;
+    }
+
+    void setJournalRetired(boolean retired) {
+        journalRetired = retired;
+    }
+
+    boolean isJournalRetired() {
+        return journalRetired;
+    }
+
+    void setJournalIncarnation(long incarnation) {
+        journalIncarnation = incarnation;
+    }
+
+    long getJournalIncarnation() {
+        return journalIncarnation;
+    }
+
+    // Put back the seats and version the journal recovered, without counting a change
+    void restoreSeatState(int availableSeats, long version) {
+        seatState.set((version << 32) | (availableSeats & 0xFFFFFFFFL));
+        seatsChanged();
+    }
+
+    // Start the seat version over, keeping the seats; only called by journal compaction
+    void resetSeatVersion() {
+        seatState.getAndUpdate(state -> state & 0xFFFFFFFFL);
+    }
+
+    // Returns the seat version the change produced, or 0 if fewer than n seats are left
+    private long reserveSeats(int n) {
+        while (true) {
+            long current = seatState.get();
+            int seats = seatsOf(current);
+            if (seats < n) {
+                return 0;
+            }
+            long next = nextState(current, seats - n);
+            if (seatState.compareAndSet(current, next)) {
+                seatsChanged();
+                return versionOf(next);
+            }
+        }
+    }
+
+    private long releaseSeats(int n) {
+        while (true) {
+            long current = seatState.get();
+            int seats = seatsOf(current);
+            if (seats > totalSeats - n) {
+                throw new IllegalStateException("Cannot release more seats than were booked on flight " + flightId + ".");
+            }
+            long next = nextState(current, seats + n);
+            if (seatState.compareAndSet(current, next)) {
+                seatsChanged();
+                return versionOf(next);
+            }
+        }
     }
 
     public Airplane getAirplane() {
@@ -434,59 +1308,369 @@ class Flight {
     }
 
     public void setAirplane(Airplane airplane) {
-        this.airplane = airplane;
-        this.totalSeats = airplane.getCapacity();
-        this.availableSeats = airplane.getCapacity();
+        this.airplane = Fleet.intern(airplane);
+        this.totalSeats = this.airplane.getCapacity();
+        seatState.getAndUpdate(state -> nextState(state, totalSeats));
+        this.seatMap = null;
+        seatsChanged();
+    }
+
+    // Seat map laid out for this flight's seat count
+    public SeatMap getSeatMap() {
+        SeatMap map = seatMap;
+        if (map == null) {
+            synchronized (this) {
+                map = seatMap;
+                if (map == null) {
+                    map = new SeatMap(SeatLayout.forCapacity(totalSeats));
+                    seatMap = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    // Reserve count seats and give them seat numbers, side by side in one row if adjacent
+    // is set. Returns the seat numbers, or null (and reserves nothing) if that is not possible.
+    public List<String> reserveSeatNumbers(int count, boolean adjacent) {
+        if (!tryReserve(count)) {
+            return null;
+        }
+        SeatMap map = getSeatMap();
+        List<String> seatNumbers = new ArrayList<>(count);
+        if (adjacent) {
+            int first = map.assignAdjacent(count);
+            if (first < 0) {
+                release(count);
+                return null;
+            }
+            for (int seat = first; seat < first + count; seat++) {
+                seatNumbers.add(map.getLayout().label(seat));
+            }
+            return seatNumbers;
+        }
+        for (int i = 0; i < count; i++) {
+            // Assigned seats never outnumber reserved ones, so a free seat is always left
+            int seat = map.assignAny();
+            if (seat < 0) {
+                releaseSeatNumbers(seatNumbers);
+                release(count - seatNumbers.size());
+                return null;
+            }
+            seatNumbers.add(map.getLayout().label(seat));
+        }
+        return seatNumbers;
+    }
+
+    // Free numbered seats and give them back to the flight
+    public void releaseSeatNumbers(List<String> seatNumbers) {
+        SeatMap map = getSeatMap();
+        int freed = 0;
+        for (String seatNumber : seatNumbers) {
+            int seat = map.getLayout().parse(seatNumber);
+            if (seat >= 0 && map.release(seat)) {
+                freed++;
+            }
+        }
+        if (freed > 0) {
+            release(freed);
+        }
+    }
+
+    void setStatistics(BookingStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    // Only clears the link if it still points at the given statistics
+    void clearStatistics(BookingStatistics statistics) {
+        if (this.statistics == statistics) {
+            this.statistics = null;
+        }
+    }
+
+    private void seatsChanged() {
+        BookingStatistics counters = statistics;
+        if (counters != null) {
+            counters.sync(this);
+        }
     }
 
     @Override
     public String toString() {
         return "Flight ID: " + flightId + ", Origin: " + origin.getName() + ", Destination: " + destination.getName() +
-                ", Departure: " + departureTime + ", Arrival: " + arrivalTime + ", Seats: " + availableSeats +
+                ", Departure: " + departureTime + ", Arrival: " + arrivalTime + ", Seats: " + getAvailableSeats() +
                 ", Airplane: [" + airplane + "]";
     }
 }
 
+// Parses the free-form departure/arrival strings into minutes since 1970-01-01 00:00
+// (local schedule time, no time zone). Accepted forms are "yyyy-MM-dd HH:mm" (or with
+// 'T' between date and time, optionally followed by ":ss"), "yyyy-MM-dd" and "H:mm";
+// a time without a date counts from day 0. Anything else is UNKNOWN, never an exception.
+class FlightTimes {
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    public static long parse(String time) {
+        if (time == null) {
+            return UNKNOWN;
+        }
+        int start = 0;
+        int end = time.length();
+        while (start < end && time.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && time.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start >= 10 && time.charAt(start + 4) == '-' && time.charAt(start + 7) == '-') {
+            int year = digits(time, start, 4);
+            int month = digits(time, start + 5, 2);
+            int day = digits(time, start + 8, 2);
+            if (year < 0 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+                return UNKNOWN;
+            }
+            long minutes = LocalDate.of(year, month, day).toEpochDay() * 24 * 60;
+            if (end - start == 10) {
+                return minutes;
+            }
+            char separator = time.charAt(start + 10);
+            if (separator != ' ' && separator != 'T') {
+                return UNKNOWN;
+            }
+            int timeStart = start + 11;
+            while (timeStart < end && time.charAt(timeStart) == ' ') {
+                timeStart++;
+            }
+            long timeOfDay = timeOfDay(time, timeStart, end);
+            return timeOfDay == UNKNOWN ? UNKNOWN : minutes + timeOfDay;
+        }
+        return timeOfDay(time, start, end);
+    }
+
+    // "H:mm" or "HH:mm", optionally followed by ":ss" (ignored), as minutes after midnight
+    private static long timeOfDay(String time, int start, int end) {
+        int colon = start;
+        while (colon < end && time.charAt(colon) != ':') {
+            colon++;
+        }
+        int hourDigits = colon - start;
+        if (hourDigits < 1 || hourDigits > 2 || end - colon < 3) {
+            return UNKNOWN;
+        }
+        int hour = digits(time, start, hourDigits);
+        int minute = digits(time, colon + 1, 2);
+        boolean valid = end - colon == 3 || (end - colon == 6 && time.charAt(colon + 3) == ':'
+                && digits(time, colon + 4, 2) >= 0);
+        if (!valid || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return UNKNOWN;
+        }
+        return hour * 60L + minute;
+    }
+
+    // Value of count decimal digits at offset, or -1 if any of them is not a digit
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
+
 // FlightSchedule class to manage a list of flights
 class FlightSchedule {
-    private static List<Flight> flights = new ArrayList<>();
+    // All schedule data lives in one state object so setFlights can swap it in a single step
+    private static volatile ScheduleState state = new ScheduleState();
+
+    // add/update/cancel share the read side (they only lock their own flight ID);
+    // setFlights takes the write side to swap the whole schedule. Readers never lock.
+    private static final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+    // Schedule order is the order flights were added in
+    private static final AtomicLong nextSequence = new AtomicLong();
+
+    // Bumped after every mutation; a cached snapshot is only reused while its version is current
+    private static final AtomicLong modificationCount = new AtomicLong();
+    private static volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    // Write-ahead journal for mutations, or null when changes are only kept in memory
+    private static volatile FlightJournal journal;
 
     // Add a flight
     public static void addFlight(Flight flight) {
-        if (flight.getOrigin() == null || flight.getDestination() == null) {
-            throw new IllegalArgumentException("Both origin and destination airports must be specified.");
-        }
+        addFlight(flight, true);
+    }
 
-        flights.add(flight);
-        System.out.println("Flight added successfully: " + flight);
+    // report=false leaves out the success message; the same goes for update and cancel
+    static void addFlight(Flight flight, boolean report) {
+        timed(OperationMetrics.FLIGHT_ADD, () -> applyAdd(flight, report));
+    }
+
+    private static void applyAdd(Flight flight, boolean report) {
+        requireAirports(flight);
+        String key = normalizeId(flight.getFlightId());
+        boolean added;
+        long[] logged = new long[1];
+        FlightJournal log = beginWrite();
+        try {
+            ScheduleState current = state;
+            ScheduledFlight scheduled = new ScheduledFlight(key, nextSequence.incrementAndGet(), flight);
+            added = current.byId.computeIfAbsent(key, k -> {
+                current.index(scheduled);
+                if (log != null) {
+                    logged[0] = log.logAdd(flight);
+                }
+                return scheduled;
+            }) == scheduled;
+            if (added) {
+                modificationCount.incrementAndGet();
+            }
+        } finally {
+            endWrite(log);
+        }
+        awaitJournal(log, logged[0]);
+        if (!added) {
+            throw new IllegalArgumentException("Flight with ID " + flight.getFlightId() + " already exists.");
+        }
+        if (report) {
+            System.out.println("Flight added successfully: " + flight);
+        }
     }
 
     // Update a flight
     public static void updateFlight(Flight updatedFlight) throws Exception {
-        for (int i = 0; i < flights.size(); i++) {
-            if (flights.get(i).getFlightId().equals(updatedFlight.getFlightId())) {
-                flights.set(i, updatedFlight);
-                System.out.println("Flight updated successfully: " + updatedFlight);
-                return;
+        updateFlight(updatedFlight, true);
+    }
+
+    static void updateFlight(Flight updatedFlight, boolean report) throws Exception {
+        timed(OperationMetrics.FLIGHT_UPDATE, () -> applyUpdate(updatedFlight, report));
+    }
+
+    private static void applyUpdate(Flight updatedFlight, boolean report) throws Exception {
+        requireAirports(updatedFlight);
+        String key = normalizeId(updatedFlight.getFlightId());
+        ScheduledFlight replaced;
+        Flight[] previousFlight = new Flight[1];
+        // Passengers whose seats moved to the new flight, and those who no longer fit
+        Map<Customer, Integer> kept = new LinkedHashMap<>();
+        Map<Customer, Integer> bumped = new LinkedHashMap<>();
+        long[] logged = new long[1];
+        FlightJournal log = beginWrite();
+        try {
+            ScheduleState current = state;
+            // The manifest is held until the new flight is visible, so no booking can be
+            // recorded on the old one after its passengers have moved
+            replaced = PassengerManifest.holding(updatedFlight.getFlightId(),
+                    () -> current.byId.computeIfPresent(key, (k, previous) -> {
+                        previousFlight[0] = previous.flight;
+                        // Nobody else can book the new flight yet, so the passengers get their seats first
+                        PassengerManifest.moveTo(previous.flight, updatedFlight, kept, bumped);
+                        // Replacing keeps the original position
+                        ScheduledFlight next = new ScheduledFlight(key, previous.sequence, updatedFlight);
+                        current.replace(previous, next);
+                        if (log != null) {
+                            logged[0] = log.logUpdate(previous.flight, updatedFlight);
+                        }
+                        return next;
+                    }));
+            if (replaced != null) {
+                modificationCount.incrementAndGet();
             }
+        } finally {
+            endWrite(log);
+        }
+        awaitJournal(log, logged[0]);
+        if (replaced == null) {
+            throw new Exception("Flight not found.");
         }
-        throw new Exception("Flight not found.");
+        if (report) {
+            System.out.println("Flight updated successfully: " + updatedFlight);
+        }
+        FlightFanOut.rescheduled(previousFlight[0], updatedFlight, kept, bumped, report);
     }
 
     // Cancel a flight
     public static void cancelFlight(String flightId) throws Exception {
-        for (Flight flight : flights) {
-            if (flight.getFlightId().equals(flightId)) {
-                flights.remove(flight);
-                System.out.println("Flight cancelled successfully: " + flight);
-                return;
+        cancelFlight(flightId, true);
+    }
+
+    static void cancelFlight(String flightId, boolean report) throws Exception {
+        timed(OperationMetrics.FLIGHT_CANCEL, () -> applyCancel(flightId, report));
+    }
+
+    private static void applyCancel(String flightId, boolean report) throws Exception {
+        String key = normalizeId(flightId);
+        Flight[] removed = new Flight[1];
+        long[] logged = new long[1];
+        FlightJournal log = beginWrite();
+        try {
+            ScheduleState current = state;
+            current.byId.computeIfPresent(key, (k, previous) -> {
+                current.unindex(previous);
+                removed[0] = previous.flight;
+                if (log != null) {
+                    logged[0] = log.logCancel(previous.flight);
+                }
+                return null;
+            });
+            if (removed[0] != null) {
+                modificationCount.incrementAndGet();
             }
+        } finally {
+            endWrite(log);
+        }
+        awaitJournal(log, logged[0]);
+        if (removed[0] == null) {
+            throw new Exception("Flight not found.");
+        }
+        if (report) {
+            System.out.println("Flight cancelled successfully: " + removed[0]);
+        }
+        FlightFanOut.cancelled(removed[0], report);
+    }
+
+    // The body of addFlight, updateFlight or cancelFlight
+    private interface Change<E extends Exception> {
+        void apply() throws E;
+    }
+
+    // Run a schedule change and record its latency; it failed if it threw
+    private static <E extends Exception> void timed(OperationStats stats, Change<E> change) throws E {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            change.apply();
+            succeeded = true;
+        } finally {
+            stats.record(start, succeeded);
         }
-        throw new Exception("Flight not found.");
+    }
+
+    // Find a flight by its ID (case-insensitive), or null if it is not scheduled
+    public static Flight findFlightById(String flightId) {
+        if (flightId == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        ScheduledFlight scheduled = state.byId.get(normalizeId(flightId));
+        OperationMetrics.FLIGHT_LOOKUP.record(start, true);
+        return scheduled == null ? null : scheduled.flight;
+    }
+
+    // Whether this very Flight object is the one scheduled under its ID (not one that
+    // has been replaced or cancelled)
+    static boolean isScheduled(Flight flight) {
+        ScheduledFlight scheduled = state.byId.get(normalizeId(flight.getFlightId()));
+        return scheduled != null && scheduled.flight == flight;
     }
 
     // List all flights
     public static void listFlights() {
+        List<Flight> flights = getFlights();
         if (flights.isEmpty()) {
             System.out.println("No flights available.");
         } else {
@@ -499,25 +1683,401 @@ class FlightSchedule {
 
     // Search for flights based on criteria
     public static List<Flight> searchFlights(String origin, String destination) {
-        List<Flight> matchingFlights = new ArrayList<>();
-        for (Flight flight : flights) {
-            if (flight.getOrigin().getAirportCode().equalsIgnoreCase(origin) &&
-                    flight.getDestination().getAirportCode().equalsIgnoreCase(destination)) {
-                matchingFlights.add(flight);
-            }
+        if (origin == null || destination == null) {
+            return new ArrayList<>();
         }
-        return matchingFlights;
+        long start = System.nanoTime();
+        List<Flight> found = bucketToList(state.flightsByRoute.get(routeKey(normalizeCode(origin), normalizeCode(destination))));
+        OperationMetrics.FLIGHT_SEARCH.record(start, true);
+        return found;
     }
 
-    // Getter for the flights
-    public static List<Flight> getFlights() {
+    // All flights departing from the given airport code
+    public static List<Flight> searchFlightsFrom(String origin) {
+        if (origin == null) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        List<Flight> found = bucketToList(state.flightsByOrigin.get(normalizeCode(origin)));
+        OperationMetrics.FLIGHT_SEARCH.record(start, true);
+        return found;
+    }
+
+    // All flights arriving at the given airport code
+    public static List<Flight> searchFlightsTo(String destination) {
+        if (destination == null) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        List<Flight> found = bucketToList(state.flightsByDestination.get(normalizeCode(destination)));
+        OperationMetrics.FLIGHT_SEARCH.record(start, true);
+        return found;
+    }
+
+    // Flights from the given airport departing within [from, to] (inclusive), ordered by
+    // departure time; cost depends on the number of flights in the window
+    public static List<Flight> searchDepartures(String origin, String from, String to) {
+        long fromInstant = FlightTimes.parse(from);
+        long toInstant = FlightTimes.parse(to);
+        if (fromInstant == FlightTimes.UNKNOWN || toInstant == FlightTimes.UNKNOWN) {
+            throw new IllegalArgumentException("Invalid time window: " + from + " to " + to);
+        }
+        return searchDepartures(origin, fromInstant, toInstant);
+    }
+
+    public static List<Flight> searchDepartures(String origin, long fromInstant, long toInstant) {
+        List<Flight> flights = new ArrayList<>();
+        for (Flight flight : departuresBetween(origin, fromInstant, toInstant)) {
+            flights.add(flight);
+        }
         return flights;
     }
 
+    // Live, lazily iterated view of the same departure window, for callers that usually
+    // stop early (such as ConnectionSearch) and should not pay for copying the whole window
+    static Iterable<Flight> departuresBetween(String origin, long fromInstant, long toInstant) {
+        ConcurrentSkipListMap<DepartureKey, ScheduledFlight> departures =
+                origin == null || fromInstant > toInstant ? null : state.departuresByOrigin.get(normalizeCode(origin));
+        if (departures == null) {
+            return Collections.emptyList();
+        }
+        Collection<ScheduledFlight> window = departures.subMap(new DepartureKey(fromInstant, Long.MIN_VALUE), true,
+                new DepartureKey(toInstant, Long.MAX_VALUE), true).values();
+        return () -> new Iterator<Flight>() {
+            private final Iterator<ScheduledFlight> scheduled = window.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return scheduled.hasNext();
+            }
+
+            @Override
+            public Flight next() {
+                return scheduled.next().flight;
+            }
+        };
+    }
+
+    // Booked seats per flight, route, origin and departure day at this moment
+    public static BookingStatistics.Snapshot getBookingStatistics() {
+        return state.statistics.snapshot();
+    }
+
+    // Codes of the airports with at least one direct flight to the given airport
+    public static Set<String> getOriginsServing(String destination) {
+        Set<String> origins = destination == null ? null : state.originsByDestination.get(normalizeCode(destination));
+        return origins == null ? Collections.emptySet() : Collections.unmodifiableSet(origins);
+    }
+
+    // Getter for the flights: an immutable snapshot in schedule order, safe to iterate
+    // while other threads keep changing the schedule
+    public static List<Flight> getFlights() {
+        Snapshot cached = snapshot;
+        long version = modificationCount.get();
+        if (cached.version == version) {
+            return cached.flights;
+        }
+        Snapshot fresh = new Snapshot(version, Collections.unmodifiableList(orderedFlights(state)));
+        snapshot = fresh;
+        return fresh.flights;
+    }
+
     // Setter for the flights
     public static void setFlights(List<Flight> newFlights) {
-        flights = newFlights;
+        ScheduleState fresh = new ScheduleState();
+        Map<Flight, Map<Customer, Integer>> replacedBookings = Collections.emptyMap();
+        for (Flight flight : newFlights) {
+            String key = normalizeId(flight.getFlightId());
+            if (fresh.byId.containsKey(key)) {
+                System.out.println("Skipped duplicate flight ID: " + flight.getFlightId());
+                continue;
+            }
+            ScheduledFlight scheduled = new ScheduledFlight(key, nextSequence.incrementAndGet(), flight);
+            fresh.byId.put(key, scheduled);
+            fresh.index(scheduled);
+        }
+        structureLock.writeLock().lock();
+        try {
+            ScheduleState previous = state;
+            state = fresh;
+            modificationCount.incrementAndGet();
+            // The journal cannot express a wholesale replacement, so fold it into a new snapshot.
+            // Flights that did not survive the reload are retired with it, as update and cancel
+            // do, so seat changes still made on them cannot be replayed onto their successors.
+            FlightJournal log = journal;
+            if (log != null) {
+                log.compact(orderedFlights(fresh), replacedFlights(previous, fresh));
+            }
+        } catch (IOException e) {
+            System.out.println("Error compacting journal: " + e.getMessage());
+        } finally {
+            // A reload cannot tell whether the file's seat counts include the existing
+            // bookings, so bookings on replaced flights are dropped rather than carried
+            // over. Closed before updates can run again, so no manifest moves meanwhile.
+            try {
+                replacedBookings = PassengerManifest.closeReplaced();
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        }
         System.out.println("Flight schedule updated successfully.");
+        for (Map.Entry<Flight, Map<Customer, Integer>> replaced : replacedBookings.entrySet()) {
+            FlightFanOut.reloaded(replaced.getKey(), replaced.getValue());
+        }
+    }
+
+    // Start journaling every mutation; call after the recovered schedule has been set
+    public static void attachJournal(FlightJournal flightJournal) {
+        structureLock.writeLock().lock();
+        try {
+            journal = flightJournal;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    static FlightJournal getJournal() {
+        return journal;
+    }
+
+    // Fold the journal into a fresh snapshot of the current schedule
+    public static void compactJournal() throws IOException {
+        structureLock.writeLock().lock();
+        try {
+            FlightJournal log = journal;
+            if (log != null) {
+                log.compact(orderedFlights(state));
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Flight IDs are matched case-insensitively, so normalize them once on the way in
+    private static String normalizeId(String flightId) {
+        return flightId.toLowerCase(Locale.ROOT);
+    }
+
+    // Airport codes are matched case-insensitively as well
+    private static String normalizeCode(String airportCode) {
+        return airportCode.toUpperCase(Locale.ROOT);
+    }
+
+    private static String routeKey(String originCode, String destinationCode) {
+        return originCode + "->" + destinationCode;
+    }
+
+    private static void requireAirports(Flight flight) {
+        if (flight.getOrigin() == null || flight.getDestination() == null) {
+            throw new IllegalArgumentException("Both origin and destination airports must be specified.");
+        }
+    }
+
+    // Writers hold the structure lock (and the journal gate while journaling) for the mutation
+    private static FlightJournal beginWrite() {
+        structureLock.readLock().lock();
+        FlightJournal log = journal;
+        if (log != null) {
+            log.lockShared();
+        }
+        return log;
+    }
+
+    private static void endWrite(FlightJournal log) {
+        if (log != null) {
+            log.unlockShared();
+        }
+        structureLock.readLock().unlock();
+    }
+
+    // Wait for the journal record outside of any lock so fsyncs are shared between writers
+    private static void awaitJournal(FlightJournal log, long sequence) {
+        if (log != null && sequence > 0) {
+            log.awaitDurable(sequence);
+        }
+    }
+
+    private static List<Flight> orderedFlights(ScheduleState source) {
+        List<Flight> flights = new ArrayList<>();
+        for (ScheduledFlight scheduled : source.ordered.values()) {
+            flights.add(scheduled.flight);
+        }
+        return flights;
+    }
+
+    // Flight objects scheduled in previous that next does not schedule as well
+    private static List<Flight> replacedFlights(ScheduleState previous, ScheduleState next) {
+        List<Flight> replaced = new ArrayList<>();
+        for (ScheduledFlight scheduled : previous.byId.values()) {
+            ScheduledFlight kept = next.byId.get(scheduled.key);
+            if (kept == null || kept.flight != scheduled.flight) {
+                replaced.add(scheduled.flight);
+            }
+        }
+        return replaced;
+    }
+
+    private static List<Flight> bucketToList(Map<Long, ScheduledFlight> bucket) {
+        List<Flight> flights = new ArrayList<>();
+        if (bucket != null) {
+            for (ScheduledFlight scheduled : bucket.values()) {
+                flights.add(scheduled.flight);
+            }
+        }
+        return flights;
+    }
+
+    // A flight together with its normalized ID, its position in the schedule and the
+    // airport codes and departure time it is indexed under. The keys are captured here
+    // because the Flight itself is mutable: an update that changes the airports of the
+    // scheduled object in place must still be removed under the keys it was indexed by.
+    private static final class ScheduledFlight {
+        final String key;
+        final long sequence;
+        final Flight flight;
+        final String originCode;
+        final String destinationCode;
+        final DepartureKey departure;
+
+        ScheduledFlight(String key, long sequence, Flight flight) {
+            this.key = key;
+            this.sequence = sequence;
+            this.flight = flight;
+            this.originCode = normalizeCode(flight.getOrigin().getAirportCode());
+            this.destinationCode = normalizeCode(flight.getDestination().getAirportCode());
+            this.departure = new DepartureKey(flight.getDepartureInstant(), sequence);
+        }
+    }
+
+    // Departure index key: departure time, ties broken by schedule position
+    private static final class DepartureKey implements Comparable<DepartureKey> {
+        final long instant;
+        final long sequence;
+
+        DepartureKey(long instant, long sequence) {
+            this.instant = instant;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(DepartureKey other) {
+            int byInstant = Long.compare(instant, other.instant);
+            return byInstant != 0 ? byInstant : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final List<Flight> flights;
+
+        Snapshot(long version, List<Flight> flights) {
+            this.version = version;
+            this.flights = flights;
+        }
+    }
+
+    // Primary ID index, schedule order and the airport indexes. Buckets are ordered by
+    // sequence so search results come back in schedule order.
+    private static final class ScheduleState {
+        final ConcurrentHashMap<String, ScheduledFlight> byId = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<Long, ScheduledFlight> ordered = new ConcurrentSkipListMap<>();
+        final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ScheduledFlight>> flightsByRoute = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ScheduledFlight>> flightsByOrigin = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ScheduledFlight>> flightsByDestination = new ConcurrentHashMap<>();
+        // Airport-level adjacency: for each destination, the origins with at least one flight to it
+        final ConcurrentHashMap<String, Set<String>> originsByDestination = new ConcurrentHashMap<>();
+        // Per origin, flights sorted by departure time; flights without a parseable time are left out
+        final ConcurrentHashMap<String, ConcurrentSkipListMap<DepartureKey, ScheduledFlight>> departuresByOrigin = new ConcurrentHashMap<>();
+        // Running booked-seat totals of the flights in this state
+        final BookingStatistics statistics = new BookingStatistics();
+
+        // The route indexes key off the airports a flight had when it was scheduled;
+        // changing a flight's airports must go through updateFlight to be picked up.
+        void index(ScheduledFlight scheduled) {
+            String originCode = scheduled.originCode;
+            String destinationCode = scheduled.destinationCode;
+            ordered.put(scheduled.sequence, scheduled);
+            flightsByRoute.compute(routeKey(originCode, destinationCode), (k, bucket) -> {
+                if (bucket == null) {
+                    bucket = new ConcurrentSkipListMap<>();
+                    originsByDestination.computeIfAbsent(destinationCode, d -> ConcurrentHashMap.newKeySet()).add(originCode);
+                }
+                bucket.put(scheduled.sequence, scheduled);
+                return bucket;
+            });
+            addToBucket(flightsByOrigin, originCode, scheduled);
+            addToBucket(flightsByDestination, destinationCode, scheduled);
+            if (scheduled.departure.instant != FlightTimes.UNKNOWN) {
+                departuresByOrigin.compute(originCode, (k, departures) -> {
+                    if (departures == null) {
+                        departures = new ConcurrentSkipListMap<>();
+                    }
+                    departures.put(scheduled.departure, scheduled);
+                    return departures;
+                });
+            }
+            statistics.attach(scheduled.flight);
+        }
+
+        void unindex(ScheduledFlight scheduled) {
+            removeEntries(scheduled);
+            statistics.detach(scheduled.flight);
+        }
+
+        // Swap in next for previous under the same sequence. next is indexed first and the
+        // removals only take out entries that still hold previous, so a concurrent reader
+        // sees either flight in every index, never neither.
+        void replace(ScheduledFlight previous, ScheduledFlight next) {
+            index(next);
+            removeEntries(previous);
+            if (previous.flight != next.flight) {
+                statistics.detach(previous.flight);
+            }
+        }
+
+        // Removes under the keys captured when the flight was indexed, not its current airports
+        private void removeEntries(ScheduledFlight scheduled) {
+            String originCode = scheduled.originCode;
+            String destinationCode = scheduled.destinationCode;
+            ordered.remove(scheduled.sequence, scheduled);
+            flightsByRoute.computeIfPresent(routeKey(originCode, destinationCode), (k, bucket) -> {
+                bucket.remove(scheduled.sequence, scheduled);
+                if (!bucket.isEmpty()) {
+                    return bucket;
+                }
+                originsByDestination.computeIfPresent(destinationCode, (d, origins) -> {
+                    origins.remove(originCode);
+                    return origins.isEmpty() ? null : origins;
+                });
+                return null;
+            });
+            removeFromBucket(flightsByOrigin, originCode, scheduled);
+            removeFromBucket(flightsByDestination, destinationCode, scheduled);
+            // The departure key was captured with the origin code, so both come from scheduled
+            departuresByOrigin.computeIfPresent(originCode, (k, departures) -> {
+                departures.remove(scheduled.departure, scheduled);
+                return departures.isEmpty() ? null : departures;
+            });
+        }
+
+        private static void addToBucket(ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ScheduledFlight>> index,
+                String indexKey, ScheduledFlight scheduled) {
+            index.compute(indexKey, (k, bucket) -> {
+                if (bucket == null) {
+                    bucket = new ConcurrentSkipListMap<>();
+                }
+                bucket.put(scheduled.sequence, scheduled);
+                return bucket;
+            });
+        }
+
+        private static void removeFromBucket(ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ScheduledFlight>> index,
+                String indexKey, ScheduledFlight scheduled) {
+            index.computeIfPresent(indexKey, (k, bucket) -> {
+                bucket.remove(scheduled.sequence, scheduled);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
     }
 }
 
@@ -548,20 +2108,26 @@ public class AirplaneManagementSystem {
 
 // Customer class extending User (Inheritance)
 class Customer extends User {
-    private List<Flight> bookings = new ArrayList<>(); // Encapsulation
+    private final List<Flight> bookings = new ArrayList<>(); // Encapsulation; guarded by itself
+    // Numbered seats per flight ID (lower-case); also guarded by bookings
+    private final Map<String, List<String>> seatNumbers = new HashMap<>();
 
     public Customer(String name, String email) {
         super(name, email);
     }
 
+    public Customer(String name, String email, int inboxCapacity) {
+        super(name, email, inboxCapacity);
+    }
+
     @Override
     public void displayRole() {
         System.out.println("Role: Customer");
     }
 
     @Override
-    public void receiveNotification(String message) {
-        super.receiveNotification("Customer Alert: " + message);
+    protected String formatNotification(String message) {
+        return "Customer Alert: " + message;
     }
 
     // Search for flights (already implemented)
@@ -577,91 +2143,596 @@ class Customer extends User {
         }
     }
 
-    // New: Book a flight
+    // Search for direct and connecting itineraries leaving on or after the given time
+    public List<Itinerary> searchConnections(String origin, String destination, String earliestDeparture) {
+        List<Itinerary> results = new ConnectionSearch().search(origin, destination, earliestDeparture);
+        if (results.isEmpty()) {
+            System.out.println("No itineraries found for the given criteria.");
+        } else {
+            System.out.println("Matching Itineraries:");
+            for (Itinerary itinerary : results) {
+                System.out.println(itinerary);
+            }
+        }
+        return results;
+    }
+
+    // New: Book a flight; a full flight puts the customer on its waitlist
     public void bookFlight(String flightId) throws Exception {
-        Flight selectedFlight = null;
+        long start = System.nanoTime();
+        BookingResult result = null;
+        try {
+            result = bookOrWaitlist(flightId, 1);
+        } finally {
+            OperationMetrics.BOOKING.record(start, result != null && (result.getStatus() == BookingStatus.CONFIRMED
+                    || result.getStatus() == BookingStatus.WAITLISTED));
+        }
+        switch (result.getStatus()) {
+            case CONFIRMED:
+                return;
+            case WAITLISTED:
+                if (!isQuiet()) {
+                    System.out.println("No seats available for flight ID: " + flightId + ". You are number "
+                            + result.getWaitlistPosition() + " on the waitlist and will be booked when a seat frees up.");
+                }
+                return;
+            case FLIGHT_NOT_FOUND:
+                throw new Exception("Flight with ID " + flightId + " not found.");
+            case NO_SEATS:
+                throw new Exception("No seats available for flight ID: " + flightId);
+            case ALREADY_WAITLISTED:
+                throw new Exception("No seats available for flight ID: " + flightId
+                        + ". You are already on its waitlist.");
+            default:
+                throw new Exception("Booking failed for flight ID " + flightId + ": " + result.getStatus());
+        }
+    }
 
-        // Find the flight by ID in the flight schedule
-        for (Flight flight : FlightSchedule.getFlights()) {
-            if (flight.getFlightId().equalsIgnoreCase(flightId)) {
-                selectedFlight = flight;
-                break;
-            }
+    // Book seats on one flight, or join its waitlist if it is full
+    public BookingResult bookOrWaitlist(String flightId, int seats) {
+        BookingResult result = bookSeats(flightId, seats);
+        if (result.getStatus() != BookingStatus.NO_SEATS) {
+            return result;
+        }
+        Flight flight = FlightSchedule.findFlightById(flightId);
+        if (flight == null) {
+            return BookingResult.failure(BookingStatus.FLIGHT_NOT_FOUND, flightId, seats);
+        }
+        if (seats > flight.getTotalSeats()) {
+            return result; // Could never be promoted
+        }
+        int position = FlightWaitlist.join(flight, this, seats);
+        if (position == FlightWaitlist.NOT_SCHEDULED) {
+            return BookingResult.failure(BookingStatus.FLIGHT_NOT_FOUND, flight.getFlightId(), seats);
         }
+        if (position == FlightWaitlist.ALREADY_WAITING) {
+            return BookingResult.failure(BookingStatus.ALREADY_WAITLISTED, flight.getFlightId(), seats);
+        }
+        return BookingResult.waitlisted(flight.getFlightId(), seats, position);
+    }
+
+    // Leave a flight's waitlist; false if the customer was not on it
+    public boolean leaveWaitlist(String flightId) {
+        return FlightWaitlist.withdraw(flightId, this);
+    }
 
-        if (selectedFlight == null) {
-            throw new Exception("Flight with ID " + flightId + " not found.");
+    // Called by FlightWaitlist once seats have been reserved for this customer. Returns
+    // false if the booking cannot be completed (the flight was cancelled meanwhile).
+    boolean waitlistPromoted(Flight flight, int seats) {
+        List<Flight> legs = Collections.singletonList(flight);
+        if (PassengerManifest.add(legs, this, seats, () -> addBookings(legs, seats)) != null) {
+            return false;
         }
+        postNotification(() -> "Good news: a seat freed up. Your waitlisted booking for " + seats
+                + (seats == 1 ? " seat" : " seats") + " on flight " + flight.getFlightId() + " from "
+                + flight.getOrigin() + " to " + flight.getDestination() + " is now confirmed.");
+        return true;
+    }
 
-        // Check seat availability
-        if (selectedFlight.getAvailableSeats() > 0) {
-            selectedFlight.setAvailableSeats(selectedFlight.getAvailableSeats() - 1);
-            bookings.add(selectedFlight); // Add the flight to customer's bookings
-            receiveNotification("Booking confirmed for flight " + selectedFlight.getFlightId() + " from "
-                    + selectedFlight.getOrigin() + " to " + selectedFlight.getDestination());
-        } else {
-            throw new Exception("No seats available for flight ID: " + flightId);
+    // Book several seats on one flight; either all of them are reserved or none are
+    public BookingResult bookSeats(String flightId, int seats) {
+        return bookItinerary(Collections.singletonList(flightId), seats);
+    }
+
+    // Book the same number of seats on every flight of an itinerary as one unit.
+    // Seats already taken are released again if any leg fails, and the outcome is
+    // reported through the result instead of an exception.
+    public BookingResult bookItinerary(List<String> flightIds, int seats) {
+        if (flightIds == null || flightIds.isEmpty() || seats <= 0) {
+            return BookingResult.failure(BookingStatus.INVALID_REQUEST, null, seats);
+        }
+
+        // A leg rescheduled between being looked up and being recorded is booked again on
+        // its replacement; that only repeats while updates to it keep completing
+        while (true) {
+            List<Flight> legs = new ArrayList<>(flightIds.size());
+            for (String flightId : flightIds) {
+                Flight flight = FlightSchedule.findFlightById(flightId);
+                if (flight == null) {
+                    return BookingResult.failure(BookingStatus.FLIGHT_NOT_FOUND, flightId, seats);
+                }
+                legs.add(flight);
+            }
+
+            for (int i = 0; i < legs.size(); i++) {
+                if (!legs.get(i).tryReserve(seats)) {
+                    // Roll back the legs that were already reserved
+                    for (int j = 0; j < i; j++) {
+                        legs.get(j).release(seats);
+                    }
+                    return BookingResult.failure(BookingStatus.NO_SEATS, legs.get(i).getFlightId(), seats);
+                }
+            }
+
+            // The bookings are added while the manifests are held, so a cancellation cannot slip in between
+            Flight failed = PassengerManifest.add(legs, this, seats, () -> addBookings(legs, seats));
+            if (failed == null) {
+                for (Flight flight : legs) {
+                    postNotification(() -> "Booking confirmed for " + seats + (seats == 1 ? " seat" : " seats")
+                            + " on flight " + flight.getFlightId() + " from " + flight.getOrigin() + " to "
+                            + flight.getDestination());
+                }
+                return BookingResult.confirmed(legs, seats);
+            }
+            // Nothing was recorded, so only the seats go back
+            for (Flight flight : legs) {
+                flight.release(seats);
+            }
+            if (FlightSchedule.findFlightById(failed.getFlightId()) == null) {
+                return BookingResult.failure(BookingStatus.FLIGHT_NOT_FOUND, failed.getFlightId(), seats);
+            }
         }
     }
 
-    // Cancel a booking
-    public void cancelBooking(String flightId) throws Exception {
-        Flight bookingToCancel = null;
+    // Book seats with seat numbers on one flight, side by side in one row if adjacent is set
+    // (e.g. for a family); the seat numbers are in the result
+    public BookingResult bookSeatNumbers(String flightId, int seats, boolean adjacent) {
+        if (flightId == null || seats <= 0) {
+            return BookingResult.failure(BookingStatus.INVALID_REQUEST, flightId, seats);
+        }
+        // Retried on the replacement if the flight is rescheduled meanwhile, as in bookItinerary
+        while (true) {
+            Flight flight = FlightSchedule.findFlightById(flightId);
+            if (flight == null) {
+                return BookingResult.failure(BookingStatus.FLIGHT_NOT_FOUND, flightId, seats);
+            }
+            List<String> assigned = flight.reserveSeatNumbers(seats, adjacent);
+            if (assigned == null) {
+                BookingStatus status = adjacent && flight.getAvailableSeats() >= seats
+                        ? BookingStatus.NO_ADJACENT_SEATS
+                        : BookingStatus.NO_SEATS;
+                return BookingResult.failure(status, flight.getFlightId(), seats);
+            }
+            Runnable addBooking = () -> {
+                synchronized (bookings) {
+                    addBookings(Collections.singletonList(flight), seats);
+                    seatNumbers.computeIfAbsent(flight.getFlightId().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                            .addAll(assigned);
+                }
+            };
+            if (PassengerManifest.add(flight, this, seats, addBooking) == null) {
+                postNotification(() -> "Booking confirmed for seat" + (seats == 1 ? " " : "s ")
+                        + String.join(", ", assigned) + " on flight " + flight.getFlightId() + " from "
+                        + flight.getOrigin() + " to " + flight.getDestination());
+                return BookingResult.confirmed(Collections.singletonList(flight), seats, assigned);
+            }
+            flight.releaseSeatNumbers(assigned);
+            if (FlightSchedule.findFlightById(flightId) == null) {
+                return BookingResult.failure(BookingStatus.FLIGHT_NOT_FOUND, flight.getFlightId(), seats);
+            }
+        }
+    }
 
-        // Search for the booking in the customer's list
-        for (Flight booking : bookings) {
-            if (booking.getFlightId().equalsIgnoreCase(flightId)) {
-                bookingToCancel = booking;
-                break;
+    // Add the flights to the customer's bookings, once per seat
+    private void addBookings(List<Flight> flights, int seats) {
+        synchronized (bookings) {
+            for (Flight flight : flights) {
+                for (int i = 0; i < seats; i++) {
+                    bookings.add(flight);
+                }
             }
         }
+    }
 
-        if (bookingToCancel == null) {
-            throw new Exception("No booking found with flight ID: " + flightId);
+    // Seat numbers held on a flight, in the order they were booked
+    public List<String> getSeatNumbers(String flightId) {
+        synchronized (bookings) {
+            List<String> held = seatNumbers.get(flightId.toLowerCase(Locale.ROOT));
+            return held == null ? new ArrayList<>() : new ArrayList<>(held);
         }
+    }
+
+    // Cancel a booking
+    public void cancelBooking(String flightId) throws Exception {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Flight bookingToCancel = null;
+            String seatNumber;
+
+            synchronized (bookings) {
+                // Search for the booking in the customer's list
+                for (Flight booking : bookings) {
+                    if (booking.getFlightId().equalsIgnoreCase(flightId)) {
+                        bookingToCancel = booking;
+                        break;
+                    }
+                }
+
+                if (bookingToCancel == null) {
+                    throw new Exception("No booking found with flight ID: " + flightId);
+                }
 
-        // Increment the available seats for the flight
-        bookingToCancel.setAvailableSeats(bookingToCancel.getAvailableSeats() + 1);
+                // Remove the flight from the customer's bookings
+                bookings.remove(bookingToCancel);
+                List<String> held = seatNumbers.get(bookingToCancel.getFlightId().toLowerCase(Locale.ROOT));
+                seatNumber = held == null || held.isEmpty() ? null : held.remove(held.size() - 1);
+            }
 
-        // Remove the flight from the customer's bookings
-        bookings.remove(bookingToCancel);
+            // Give the seat back to the flight holding it, which is the replacement if the
+            // flight was rescheduled and the fan-out has not reached this customer yet
+            Flight heldOn = PassengerManifest.remove(bookingToCancel, this, 1);
+            if (heldOn == null) {
+                heldOn = bookingToCancel;
+            }
+            if (seatNumber != null && heldOn == bookingToCancel) {
+                bookingToCancel.releaseSeatNumbers(Collections.singletonList(seatNumber));
+            } else {
+                heldOn.release(1);
+            }
 
-        System.out.println("Booking canceled successfully for flight: " + bookingToCancel);
+            if (!isQuiet()) {
+                System.out.println("Booking canceled successfully for flight: " + bookingToCancel);
+            }
+            succeeded = true;
+        } finally {
+            OperationMetrics.BOOKING_CANCEL.record(start, succeeded);
+        }
     }
 
     // View customer's bookings
     public void viewBookings() {
-        if (bookings.isEmpty()) {
+        List<Flight> current = getBookings();
+        if (current.isEmpty()) {
             System.out.println("No bookings found.");
         } else {
             System.out.println("Your Bookings:");
-            for (Flight booking : bookings) {
+            for (Flight booking : current) {
                 System.out.println(booking);
             }
         }
     }
 
     public void sendFlightReminder() {
-        for (Flight flight : bookings) {
-            receiveNotification("Reminder: Upcoming flight " + flight.getFlightId() + " from " + flight.getOrigin()
+        for (Flight flight : getBookings()) {
+            postNotification(() -> "Reminder: Upcoming flight " + flight.getFlightId() + " from " + flight.getOrigin()
                     + " departs at " + flight.getDepartureTime());
         }
     }
+
+    // Called by FlightFanOut when a booked flight is cancelled: drop its seats
+    // from the bookings and let the customer know
+    void flightCancelled(Flight flight, int seats) {
+        synchronized (bookings) {
+            bookings.removeIf(booking -> booking.getFlightId().equalsIgnoreCase(flight.getFlightId()));
+            seatNumbers.remove(flight.getFlightId().toLowerCase(Locale.ROOT));
+        }
+        postNotification(() -> "Flight " + flight.getFlightId() + " from " + flight.getOrigin().getAirportCode()
+                + " to " + flight.getDestination().getAirportCode() + " has been cancelled. Your " + seats
+                + (seats == 1 ? " seat was" : " seats were") + " removed from your bookings.");
+    }
+
+    // Called by FlightFanOut when a schedule reload replaced a booked flight: drop the
+    // seats held on that Flight object and let the customer know. Bookings already made
+    // on the reloaded flight with the same ID stay.
+    void flightReloaded(Flight flight, int seats) {
+        synchronized (bookings) {
+            bookings.removeIf(booking -> booking == flight);
+            boolean stillBooked = false;
+            for (Flight booking : bookings) {
+                stillBooked |= booking.getFlightId().equalsIgnoreCase(flight.getFlightId());
+            }
+            if (!stillBooked) {
+                seatNumbers.remove(flight.getFlightId().toLowerCase(Locale.ROOT));
+            }
+        }
+        postNotification(() -> "Flight " + flight.getFlightId() + " was replaced when the schedule was reloaded. Your "
+                + seats + (seats == 1 ? " seat was" : " seats were") + " removed from your bookings.");
+    }
+
+    // Called by FlightFanOut when a booked flight was replaced by an updated one: the
+    // bookings move to the new flight, or are dropped if the seats could not be kept
+    void flightRescheduled(Flight previous, Flight updated, int seats, boolean kept) {
+        synchronized (bookings) {
+            for (int i = bookings.size() - 1; i >= 0; i--) {
+                // Seats booked on updated since the swap are not part of this move
+                Flight booking = bookings.get(i);
+                if (booking != updated && booking.getFlightId().equalsIgnoreCase(updated.getFlightId())) {
+                    if (kept) {
+                        bookings.set(i, updated);
+                    } else {
+                        bookings.remove(i);
+                    }
+                }
+            }
+            // The new flight has its own seat map; seat numbers are handed out again on request
+            seatNumbers.remove(updated.getFlightId().toLowerCase(Locale.ROOT));
+        }
+        if (kept) {
+            postNotification(() -> "Flight " + updated.getFlightId() + " has been changed: " + updated.getOrigin()
+                    .getAirportCode() + " " + updated.getDepartureTime() + " to " + updated.getDestination()
+                    .getAirportCode() + " " + updated.getArrivalTime() + " (was " + previous.getDepartureTime()
+                    + " - " + previous.getArrivalTime() + ").");
+        } else {
+            postNotification(() -> "Flight " + updated.getFlightId() + " has been changed and your " + seats
+                    + (seats == 1 ? " seat" : " seats") + " could not be kept. The booking was removed.");
+        }
+    }
+
+    // Copy of the customer's bookings, one entry per booked seat
+    public List<Flight> getBookings() {
+        synchronized (bookings) {
+            return new ArrayList<>(bookings);
+        }
+    }
+}
+
+// Outcome of a booking request
+enum BookingStatus {
+    CONFIRMED,
+    FLIGHT_NOT_FOUND,
+    NO_SEATS,
+    NO_ADJACENT_SEATS,
+    WAITLISTED,
+    ALREADY_WAITLISTED,
+    INVALID_REQUEST
+}
+
+// Result of a (group) booking: the status, the flights booked and, on failure, the flight that failed
+class BookingResult {
+    private final BookingStatus status;
+    private final List<Flight> flights;
+    private final String failedFlightId;
+    private final int seats;
+    private final List<String> seatNumbers;
+    private final int waitlistPosition;
+
+    private BookingResult(BookingStatus status, List<Flight> flights, String failedFlightId, int seats,
+            List<String> seatNumbers, int waitlistPosition) {
+        this.status = status;
+        this.flights = flights;
+        this.failedFlightId = failedFlightId;
+        this.seats = seats;
+        this.seatNumbers = seatNumbers;
+        this.waitlistPosition = waitlistPosition;
+    }
+
+    public static BookingResult confirmed(List<Flight> flights, int seats) {
+        return confirmed(flights, seats, Collections.emptyList());
+    }
+
+    public static BookingResult confirmed(List<Flight> flights, int seats, List<String> seatNumbers) {
+        return new BookingResult(BookingStatus.CONFIRMED, Collections.unmodifiableList(flights), null, seats,
+                Collections.unmodifiableList(seatNumbers), 0);
+    }
+
+    public static BookingResult failure(BookingStatus status, String failedFlightId, int seats) {
+        return new BookingResult(status, Collections.emptyList(), failedFlightId, seats, Collections.emptyList(), 0);
+    }
+
+    // The flight was full and the customer is now waiting at the given position
+    public static BookingResult waitlisted(String flightId, int seats, int position) {
+        return new BookingResult(BookingStatus.WAITLISTED, Collections.emptyList(), flightId, seats,
+                Collections.emptyList(), position);
+    }
+
+    public boolean isConfirmed() {
+        return status == BookingStatus.CONFIRMED;
+    }
+
+    public BookingStatus getStatus() {
+        return status;
+    }
+
+    public List<Flight> getFlights() {
+        return flights;
+    }
+
+    public String getFailedFlightId() {
+        return failedFlightId;
+    }
+
+    public int getSeats() {
+        return seats;
+    }
+
+    // Position on the waitlist when the status is WAITLISTED, otherwise 0
+    public int getWaitlistPosition() {
+        return waitlistPosition;
+    }
+
+    // Assigned seat numbers, empty unless the booking asked for numbered seats
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    @Override
+    public String toString() {
+        if (isConfirmed()) {
+            return "Booking " + status + ": " + seats + " seat(s) on " + flights.size() + " flight(s)";
+        }
+        return "Booking " + status + (failedFlightId == null ? "" : " for flight " + failedFlightId);
+    }
 }
 
 class Notification {
     private String message;
+    private long receivedAt;
 
     public Notification(String message) {
+        this(message, System.currentTimeMillis());
+    }
+
+    public Notification(String message, long receivedAt) {
         this.message = message;
+        this.receivedAt = receivedAt;
     }
 
     public String getMessage() {
         return message;
     }
 
+    // Milliseconds since the epoch
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
     @Override
     public String toString() {
         return message;
     }
 }
+
+// Fixed-capacity inbox kept as a ring buffer: once full, each new message overwrites
+// the oldest one. Messages, receive times and read flags are stored in plain arrays
+// and Notification objects are only created when a page is read, so an inbox never
+// holds more than capacity entries of at most MAX_MESSAGE_LENGTH characters.
+//
+// Users get DEFAULT_CAPACITY slots unless created with their own capacity. The default
+// is 100 and can be changed for the whole process with -Dnotification.inbox.capacity=N.
+class NotificationInbox {
+    static final String CAPACITY_PROPERTY = "notification.inbox.capacity";
+    static final int DEFAULT_CAPACITY = defaultCapacity(100);
+    static final int PAGE_SIZE = 20;
+    static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final String TRUNCATED = "... (truncated)";
+
+    private final String[] messages;
+    private final long[] receivedAt;
+    private final boolean[] unread;
+    private int head; // Slot the next message goes into
+    private int size;
+    private int unreadCount;
+    private long dropped;
+
+    public NotificationInbox() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public NotificationInbox(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Inbox capacity must be positive.");
+        }
+        messages = new String[capacity];
+        receivedAt = new long[capacity];
+        unread = new boolean[capacity];
+    }
+
+    // CAPACITY_PROPERTY if it is set to a positive number, otherwise fallback
+    private static int defaultCapacity(int fallback) {
+        String value = System.getProperty(CAPACITY_PROPERTY);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            int capacity = Integer.parseInt(value.trim());
+            if (capacity > 0) {
+                return capacity;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.out.println("Ignoring invalid " + CAPACITY_PROPERTY + " '" + value + "', keeping " + fallback
+                + " notifications per user.");
+        return fallback;
+    }
+
+    public synchronized void add(String message) {
+        append(message);
+    }
+
+    // Add a batch of messages under a single lock
+    public synchronized void addAll(List<String> batch) {
+        for (String message : batch) {
+            append(message);
+        }
+    }
+
+    private void append(String message) {
+        if (message != null && message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH - TRUNCATED.length()) + TRUNCATED;
+        }
+        if (size == messages.length) {
+            dropped++;
+            if (unread[head]) {
+                unreadCount--;
+            }
+        } else {
+            size++;
+        }
+        messages[head] = message;
+        receivedAt[head] = System.currentTimeMillis();
+        unread[head] = true;
+        unreadCount++;
+        head = (head + 1) % messages.length;
+    }
+
+    // Up to count notifications, newest first, skipping the newest offset ones; marks them read
+    public synchronized List<Notification> read(int offset, int count) {
+        return page(offset, count, true);
+    }
+
+    // Same as read, without marking anything read
+    public synchronized List<Notification> peek(int offset, int count) {
+        return page(offset, count, false);
+    }
+
+    public synchronized void markAllRead() {
+        Arrays.fill(unread, false);
+        unreadCount = 0;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(messages, null);
+        Arrays.fill(unread, false);
+        head = 0;
+        size = 0;
+        unreadCount = 0;
+        dropped = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return messages.length;
+    }
+
+    // Retained notifications that have not been shown yet
+    public synchronized int getUnreadCount() {
+        return unreadCount;
+    }
+
+    // Notifications overwritten because the inbox was full
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    private List<Notification> page(int offset, int count, boolean markRead) {
+        if (offset < 0 || count < 0) {
+            throw new IllegalArgumentException("Offset and count must not be negative.");
+        }
+        int end = (int) Math.min(size, (long) offset + count);
+        List<Notification> page = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            int slot = Math.floorMod(head - 1 - i, messages.length);
+            page.add(new Notification(messages[slot], receivedAt[slot]));
+            if (markRead && unread[slot]) {
+                unread[slot] = false;
+                unreadCount--;
+            }
+        }
+        return page;
+    }
+}
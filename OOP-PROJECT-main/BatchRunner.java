@@ -0,0 +1,372 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Replays a script of schedule and booking commands without the menus.
+//
+// One command per line, fields separated by tabs; blank lines and lines starting
+// with '#' are skipped:
+//
+//   add     <the 12 flights.txt columns>
+//   update  <the 12 flights.txt columns>
+//   cancel  <flight ID>
+//   book    <customer e-mail>  <flight ID>
+//   search  <origin code>  <destination code>
+//
+// Commands go through the same calls the menus make (Manager.manageFlight,
+// Customer.bookFlight, FlightSchedule.searchFlights). Customers are created on their
+// first booking and looked up by e-mail after that.
+//
+// With several workers, commands are routed by flight ID, so everything that touches
+// one flight runs on one worker in script order while different flights run in
+// parallel; searches are spread round-robin. Each worker keeps its own counters and
+// they are added up for the summary at the end.
+class BatchRunner {
+    private static final int CHUNK_SIZE = 256;
+    private static final int QUEUE_CHUNKS = 16;
+    private static final int MAX_PRINTED_ERRORS = 10;
+    private static final List<Command> END = Collections.emptyList();
+
+    enum Operation {
+        ADD, UPDATE, CANCEL, BOOK, SEARCH, INVALID
+    }
+
+    private final int workerCount;
+    private final boolean quiet;
+    private final Manager manager = new Manager("Batch", "batch@localhost");
+    private final ConcurrentHashMap<String, Customer> customers = new ConcurrentHashMap<>();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    // quiet leaves out the per-command messages of the batch's manager and customers;
+    // everything else (journal, dispatcher, errors, the summary) still prints
+    public BatchRunner(int workerCount, boolean quiet) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("At least one worker is needed.");
+        }
+        this.workerCount = workerCount;
+        this.quiet = quiet;
+        manager.setQuiet(quiet);
+    }
+
+    // Run every command from the reader and print the summary
+    public Stats run(BufferedReader reader) throws IOException {
+        long start = System.nanoTime();
+        Stats total = new Stats();
+        try {
+            if (workerCount == 1) {
+                Worker worker = new Worker(null);
+                read(reader, (command, route) -> worker.execute(command));
+                total.add(worker.stats);
+            } else {
+                runParallel(reader, total);
+            }
+        } finally {
+            total.elapsedNanos = System.nanoTime() - start;
+        }
+        print(total, System.out);
+        return total;
+    }
+
+    private void runParallel(BufferedReader reader, Stats total) throws IOException {
+        Worker[] workers = new Worker[workerCount];
+        Thread[] threads = new Thread[workerCount];
+        List<List<Command>> pending = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(new ArrayBlockingQueue<>(QUEUE_CHUNKS));
+            threads[i] = new Thread(workers[i]::drain, "batch-worker-" + i);
+            threads[i].start();
+            pending.add(new ArrayList<>(CHUNK_SIZE));
+        }
+        try {
+            read(reader, (command, route) -> {
+                List<Command> chunk = pending.get(route);
+                chunk.add(command);
+                if (chunk.size() == CHUNK_SIZE) {
+                    workers[route].submit(chunk);
+                    pending.set(route, new ArrayList<>(CHUNK_SIZE));
+                }
+            });
+        } finally {
+            for (int i = 0; i < workerCount; i++) {
+                if (!pending.get(i).isEmpty()) {
+                    workers[i].submit(pending.get(i));
+                }
+                workers[i].submit(END);
+            }
+            for (int i = 0; i < workerCount; i++) {
+                try {
+                    threads[i].join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                total.add(workers[i].stats);
+            }
+        }
+    }
+
+    private interface Sink {
+        void accept(Command command, int route);
+    }
+
+    private void read(BufferedReader reader, Sink sink) throws IOException {
+        String line;
+        int lineNumber = 0;
+        int nextSearchWorker = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (FlightLineParser.isBlank(line) || line.trim().startsWith("#")) {
+                continue;
+            }
+            Command command = new Command(lineNumber, line);
+            String routeKey = command.routeKey();
+            int route;
+            if (routeKey == null) {
+                route = nextSearchWorker;
+                nextSearchWorker = (nextSearchWorker + 1) % workerCount;
+            } else {
+                route = Math.floorMod(routeKey.toLowerCase(Locale.ROOT).hashCode(), workerCount);
+            }
+            sink.accept(command, route);
+        }
+    }
+
+    private void print(Stats total, PrintStream out) {
+        synchronized (errors) {
+            for (String error : errors) {
+                out.println("Command failed: " + error);
+            }
+        }
+        if (total.failed() > errors.size()) {
+            out.println("... and " + (total.failed() - errors.size()) + " more failed commands.");
+        }
+        out.println(String.format(Locale.ROOT, "Replayed %d commands (%d failed) in %d ms with %d worker(s), %.0f commands/s.",
+                total.count(), total.failed(), total.elapsedNanos / 1_000_000, workerCount, total.getCommandsPerSecond()));
+        out.println(String.format(Locale.ROOT, "%-8s %10s %8s %12s %12s", "Command", "Count", "Failed", "Mean (us)", "Max (us)"));
+        for (Operation operation : Operation.values()) {
+            int i = operation.ordinal();
+            if (total.counts[i] == 0) {
+                continue;
+            }
+            out.println(String.format(Locale.ROOT, "%-8s %10d %8d %12.1f %12.1f", operation.name().toLowerCase(Locale.ROOT),
+                    total.counts[i], total.failures[i], total.nanos[i] / 1e3 / total.counts[i], total.maxNanos[i] / 1e3));
+        }
+        // Percentiles of the calls underneath, from the process-wide histograms
+        OperationMetrics.printSummary();
+    }
+
+    // One script line; split into fields when it runs
+    private static final class Command {
+        final int lineNumber;
+        final String line;
+
+        Command(int lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        // Flight ID the command belongs to, or null if it can run anywhere
+        String routeKey() {
+            String[] fields = line.trim().split("\t", 4);
+            String name = fields[0].trim().toLowerCase(Locale.ROOT);
+            switch (name) {
+                case "add":
+                case "update":
+                case "cancel":
+                    return fields.length > 1 ? fields[1].trim() : null;
+                case "book":
+                    return fields.length > 2 ? fields[2].trim() : null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private final class Worker {
+        private final BlockingQueue<List<Command>> queue;
+        final Stats stats = new Stats();
+
+        Worker(BlockingQueue<List<Command>> queue) {
+            this.queue = queue;
+        }
+
+        void submit(List<Command> chunk) {
+            try {
+                queue.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing commands.");
+            }
+        }
+
+        void drain() {
+            try {
+                while (true) {
+                    List<Command> chunk = queue.take();
+                    if (chunk == END) {
+                        return;
+                    }
+                    for (Command command : chunk) {
+                        execute(command);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void execute(Command command) {
+            Operation operation = Operation.INVALID;
+            long start = System.nanoTime();
+            try {
+                String text = command.line.trim();
+                int tab = text.indexOf('\t');
+                String name = (tab < 0 ? text : text.substring(0, tab)).trim().toLowerCase(Locale.ROOT);
+                String arguments = tab < 0 ? "" : text.substring(tab + 1);
+                operation = operation(name);
+                switch (operation) {
+                    case ADD:
+                        manager.manageFlight(flight(arguments, command.lineNumber), "add");
+                        break;
+                    case UPDATE:
+                        manager.manageFlight(flight(arguments, command.lineNumber), "update");
+                        break;
+                    case CANCEL:
+                        manager.cancelFlight(fields(arguments, 1)[0]);
+                        break;
+                    case BOOK: {
+                        String[] fields = fields(arguments, 2);
+                        String email = fields[0];
+                        customers.computeIfAbsent(email.toLowerCase(Locale.ROOT), k -> customer(email))
+                                .bookFlight(fields[1]);
+                        break;
+                    }
+                    case SEARCH: {
+                        String[] fields = fields(arguments, 2);
+                        FlightSchedule.searchFlights(fields[0], fields[1]);
+                        break;
+                    }
+                    default:
+                        throw new Exception("Unknown command: " + name);
+                }
+                stats.record(operation, System.nanoTime() - start, false);
+            } catch (Exception e) {
+                stats.record(operation, System.nanoTime() - start, true);
+                synchronized (errors) {
+                    if (errors.size() < MAX_PRINTED_ERRORS) {
+                        errors.add("line " + command.lineNumber + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private Customer customer(String email) {
+        Customer customer = new Customer(email, email);
+        customer.setQuiet(quiet);
+        return customer;
+    }
+
+    private static Operation operation(String name) {
+        for (Operation operation : Operation.values()) {
+            if (operation != Operation.INVALID && operation.name().equalsIgnoreCase(name)) {
+                return operation;
+            }
+        }
+        return Operation.INVALID;
+    }
+
+    private static Flight flight(String columns, int lineNumber) throws Exception {
+        LoadReport report = new LoadReport();
+        Flight flight = new FlightLineParser(report).parse(columns, lineNumber);
+        if (flight == null) {
+            if (report.getErrors().isEmpty()) {
+                throw new Exception("Missing flight data.");
+            }
+            // The report's message starts with the line number, which is added again later
+            String error = report.getErrors().get(0);
+            throw new Exception(error.substring(error.indexOf(": ") + 2));
+        }
+        return flight;
+    }
+
+    private static String[] fields(String arguments, int count) throws Exception {
+        String[] fields = arguments.split("\t");
+        if (fields.length < count) {
+            throw new Exception("Expected " + count + " field(s) but found " + fields.length + ".");
+        }
+        for (int i = 0; i < count; i++) {
+            fields[i] = fields[i].trim();
+            if (fields[i].isEmpty()) {
+                throw new Exception("Field " + (i + 1) + " is empty.");
+            }
+        }
+        return fields;
+    }
+
+    // Counts and latencies by command; each worker fills its own
+    static final class Stats {
+        private final long[] counts = new long[Operation.values().length];
+        private final long[] failures = new long[Operation.values().length];
+        private final long[] nanos = new long[Operation.values().length];
+        private final long[] maxNanos = new long[Operation.values().length];
+        private long elapsedNanos;
+
+        void record(Operation operation, long elapsed, boolean failed) {
+            int i = operation.ordinal();
+            counts[i]++;
+            nanos[i] += elapsed;
+            maxNanos[i] = Math.max(maxNanos[i], elapsed);
+            if (failed) {
+                failures[i]++;
+            }
+        }
+
+        void add(Stats other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                failures[i] += other.failures[i];
+                nanos[i] += other.nanos[i];
+                maxNanos[i] = Math.max(maxNanos[i], other.maxNanos[i]);
+            }
+        }
+
+        public long count() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long failed() {
+            long total = 0;
+            for (long failure : failures) {
+                total += failure;
+            }
+            return total;
+        }
+
+        public long getCount(Operation operation) {
+            return counts[operation.ordinal()];
+        }
+
+        public long getFailed(Operation operation) {
+            return failures[operation.ordinal()];
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getCommandsPerSecond() {
+            return elapsedNanos <= 0 ? 0 : count() * 1e9 / elapsedNanos;
+        }
+    }
+}
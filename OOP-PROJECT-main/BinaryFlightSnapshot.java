@@ -0,0 +1,209 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Versioned binary snapshot of the flight schedule.
+//
+// Layout (big-endian):
+//   header:  magic "FLTS" (4 bytes), format version (short), reserved (short),
+//            journal sequence (long, version 2 and later)
+//   counts:  record count (int), string count (int)
+//   strings: for each string, UTF-8 length (int) followed by its bytes
+//   records: RECORD_SIZE bytes each, one int per field:
+//            flight ID, origin code/name/location, destination code/name/location,
+//            departure time, arrival time, airplane ID, airplane model (string table
+//            indexes, NO_STRING for null), capacity, available seats
+//
+// Every distinct string is stored once, and records are fixed width, so loading
+// is a table decode followed by plain int reads from a mapped buffer. Unlike the
+// TSV format the snapshot keeps capacity and available seats apart.
+// The journal sequence is the last FlightJournal record folded into the snapshot;
+// version 1 files have none and read as sequence 0.
+class BinaryFlightSnapshot {
+    static final int MAGIC = 0x464C5453; // "FLTS"
+    static final short VERSION = 2;
+    static final int V1_HEADER_SIZE = 16;
+    static final int HEADER_SIZE = 24;
+    static final int FIELDS_PER_RECORD = 13;
+    static final int RECORD_SIZE = FIELDS_PER_RECORD * 4;
+    private static final int NO_STRING = -1;
+
+    // Write the flights to filename; the file is replaced atomically once complete
+    public static void write(List<Flight> flights, String filename) throws IOException {
+        write(flights, filename, 0);
+    }
+
+    // Write the flights along with the last journal sequence they include
+    public static void write(List<Flight> flights, String filename, long journalSequence) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] records = new int[flights.size() * FIELDS_PER_RECORD];
+
+        int r = 0;
+        for (Flight flight : flights) {
+            records[r++] = intern(flight.getFlightId(), indexes, strings);
+            records[r++] = intern(flight.getOrigin().getAirportCode(), indexes, strings);
+            records[r++] = intern(flight.getOrigin().getName(), indexes, strings);
+            records[r++] = intern(flight.getOrigin().getLocation(), indexes, strings);
+            records[r++] = intern(flight.getDestination().getAirportCode(), indexes, strings);
+            records[r++] = intern(flight.getDestination().getName(), indexes, strings);
+            records[r++] = intern(flight.getDestination().getLocation(), indexes, strings);
+            records[r++] = intern(flight.getDepartureTime(), indexes, strings);
+            records[r++] = intern(flight.getArrivalTime(), indexes, strings);
+            records[r++] = intern(flight.getAirplane().getAirplaneId(), indexes, strings);
+            records[r++] = intern(flight.getAirplane().getAirplaneModel(), indexes, strings);
+            records[r++] = flight.getTotalSeats();
+            records[r++] = flight.getAvailableSeats();
+        }
+
+        Path target = Paths.get(filename);
+        Path temp = Paths.get(filename + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeLong(journalSequence);
+            out.writeInt(flights.size());
+            out.writeInt(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int value : records) {
+                out.writeInt(value);
+            }
+            out.flush();
+            file.getFD().sync(); // Durable before it replaces the old snapshot
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Read a snapshot written by write
+    public static List<Flight> read(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + filename);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readHeader(buffer, filename);
+            int recordCount = buffer.getInt();
+            int stringCount = buffer.getInt();
+
+            String[] strings = new String[stringCount];
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < stringCount; i++) {
+                int length = buffer.getInt();
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            if (buffer.remaining() != (long) recordCount * RECORD_SIZE) {
+                throw new IOException("Truncated or corrupt flight snapshot: " + filename);
+            }
+            List<Flight> flights = new ArrayList<>(recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                String flightId = string(strings, buffer.getInt());
+                Airport origin = AirportDirectory.resolve(string(strings, buffer.getInt()), string(strings, buffer.getInt()),
+                        string(strings, buffer.getInt()));
+                Airport destination = AirportDirectory.resolve(string(strings, buffer.getInt()), string(strings, buffer.getInt()),
+                        string(strings, buffer.getInt()));
+                String departureTime = string(strings, buffer.getInt());
+                String arrivalTime = string(strings, buffer.getInt());
+                String airplaneId = string(strings, buffer.getInt());
+                String airplaneModel = string(strings, buffer.getInt());
+                int capacity = buffer.getInt();
+                int availableSeats = buffer.getInt();
+                if (availableSeats < 0 || availableSeats > capacity) {
+                    throw new IOException("Corrupt flight snapshot: " + filename + " - flight " + flightId + " has "
+                            + availableSeats + " available seats out of " + capacity);
+                }
+
+                Flight flight = new Flight(flightId, origin, destination, departureTime, arrivalTime,
+                        Fleet.resolveForSeats(airplaneId, airplaneModel, capacity), capacity);
+                flight.setAvailableSeats(availableSeats);
+                flights.add(flight);
+            }
+            return flights;
+        } catch (RuntimeException e) {
+            // Out-of-range indexes or a short buffer mean the file is damaged
+            throw new IOException("Corrupt flight snapshot: " + filename + " - " + e.getMessage(), e);
+        }
+    }
+
+    // Last journal sequence folded into the snapshot, or 0 for version 1 files
+    public static long readJournalSequence(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            return readHeader(header, filename);
+        }
+    }
+
+    // Validate magic and version and leave the buffer at the record count; returns the journal sequence
+    private static long readHeader(ByteBuffer buffer, String filename) throws IOException {
+        if (buffer.remaining() < V1_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a flight snapshot: " + filename);
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported flight snapshot version " + version + ": " + filename);
+        }
+        buffer.getShort(); // Reserved
+        if (version == 1) {
+            return 0;
+        }
+        if (buffer.remaining() < HEADER_SIZE - V1_HEADER_SIZE + 8) {
+            throw new IOException("Truncated flight snapshot: " + filename);
+        }
+        return buffer.getLong();
+    }
+
+    // True if the file starts with the snapshot magic number
+    public static boolean isSnapshot(String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            return channel.read(magic, 0) == 4 && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> indexes, List<String> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(value, index);
+            strings.add(value);
+        }
+        return index;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+}
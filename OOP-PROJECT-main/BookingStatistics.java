@@ -0,0 +1,355 @@
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Running totals of booked seats per flight, route, origin airport and departure day.
+//
+// FlightSchedule attaches every scheduled flight and detaches it when it leaves the
+// schedule; the flight calls sync after each seat change. sync compares the flight's
+// booked seats with what was last counted for it and adds only the difference, so a
+// change that raced with attaching is never counted twice.
+//
+// Nothing on the booking path takes a lock. Changes are collected per epoch: a writer
+// enters the current epoch, moves the flight's counted seats forward with a CAS that
+// carries the epoch number, and adds the difference to that epoch's LongAdder for the
+// flight. snapshot seals the epoch by starting a new one, waits for the writers still
+// inside the sealed one to leave, and folds its changes into the totals. Because a
+// flight's counted seats can only move to a later epoch, every flight and group in a
+// snapshot is as of the same cut. A snapshot costs a pass over the flights changed
+// since the last one plus a copy of the totals; bookings never wait for it.
+class BookingStatistics {
+    static final String UNKNOWN_DAY = "unknown";
+    // Detaching this many flights within one epoch seals it early, so their counters do
+    // not pile up in a process that never asks for a snapshot
+    static final int MAX_DETACHED_PER_EPOCH = 4096;
+
+    private static final int DETACHED = -1;
+
+    private final ConcurrentHashMap<Flight, FlightCounter> flights = new ConcurrentHashMap<>();
+    private volatile Epoch current = new Epoch(1);
+
+    // Totals up to the last sealed epoch; guarded by snapshotLock
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final Map<FlightCounter, Long> bookedByFlight = new HashMap<>();
+    private final Map<String, Long> byRoute = new HashMap<>();
+    private final Map<String, Long> byOrigin = new HashMap<>();
+    private final Map<String, Long> byDay = new HashMap<>();
+    private long total;
+
+    // Start counting a flight's booked seats; the groups are fixed from its airports and
+    // departure day at this point
+    void attach(Flight flight) {
+        String origin = flight.getOrigin().getAirportCode().toUpperCase(Locale.ROOT);
+        String destination = flight.getDestination().getAirportCode().toUpperCase(Locale.ROOT);
+        long departure = flight.getDepartureInstant();
+        String day = departure == FlightTimes.UNKNOWN
+                ? UNKNOWN_DAY
+                : LocalDate.ofEpochDay(Math.floorDiv(departure, 24 * 60)).toString();
+        FlightCounter counter = new FlightCounter(flight, origin + "->" + destination, origin, day);
+        if (flights.putIfAbsent(flight, counter) != null) {
+            return;
+        }
+        Epoch epoch = enter();
+        try {
+            epoch.add(counter, 0); // Listed from this epoch on, even before its first booking
+        } finally {
+            epoch.exit();
+        }
+        flight.setStatistics(this);
+        sync(flight);
+    }
+
+    // Stop counting a flight and take its seats back out of the groups
+    void detach(Flight flight) {
+        flight.clearStatistics(this);
+        FlightCounter counter = flights.remove(flight);
+        if (counter == null) {
+            return;
+        }
+        Epoch epoch = enter();
+        try {
+            while (true) {
+                long state = counter.state.get();
+                if (epochOf(state) > epoch.number) {
+                    epoch = reenter(epoch);
+                } else if (counter.state.compareAndSet(state, pack(epoch.number, DETACHED))) {
+                    epoch.add(counter, -bookedOf(state));
+                    epoch.detached.add(counter);
+                    break;
+                }
+            }
+        } finally {
+            epoch.exit();
+        }
+        if (epoch.detachedCount.incrementAndGet() >= MAX_DETACHED_PER_EPOCH && snapshotLock.tryLock()) {
+            try {
+                seal();
+            } finally {
+                snapshotLock.unlock();
+            }
+        }
+    }
+
+    // Bring the counters in line with the flight's current seat count
+    void sync(Flight flight) {
+        FlightCounter counter = flights.get(flight);
+        if (counter == null) {
+            return;
+        }
+        Epoch epoch = enter();
+        try {
+            while (true) {
+                long state = counter.state.get();
+                int counted = bookedOf(state);
+                if (counted == DETACHED) {
+                    return;
+                }
+                if (epochOf(state) > epoch.number) {
+                    // A newer epoch already moved this flight; our change belongs after it
+                    epoch = reenter(epoch);
+                    continue;
+                }
+                int booked = flight.getTotalSeats() - flight.getAvailableSeats();
+                if (booked == counted) {
+                    return;
+                }
+                if (counter.state.compareAndSet(state, pack(epoch.number, booked))) {
+                    epoch.add(counter, booked - counted);
+                    return;
+                }
+            }
+        } finally {
+            epoch.exit();
+        }
+    }
+
+    // Consistent copy of every group
+    Snapshot snapshot() {
+        snapshotLock.lock();
+        try {
+            seal();
+            Map<Flight, Seats> flightTotals = new IdentityHashMap<>(bookedByFlight.size());
+            for (Map.Entry<FlightCounter, Long> entry : bookedByFlight.entrySet()) {
+                FlightCounter counter = entry.getKey();
+                // Read now rather than at attach: Flight.setAirplane resizes a flight in place
+                flightTotals.put(counter.flight, new Seats(counter.flight.getTotalSeats(), entry.getValue()));
+            }
+            return new Snapshot(total, flightTotals, sorted(byRoute), sorted(byOrigin), sorted(byDay));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Start a new epoch and fold the previous one into the totals; holds snapshotLock
+    private void seal() {
+        Epoch sealed = current;
+        current = new Epoch(sealed.number + 1);
+        sealed.awaitWriters();
+        for (Map.Entry<FlightCounter, LongAdder> change : sealed.changes.entrySet()) {
+            FlightCounter counter = change.getKey();
+            long delta = change.getValue().sum();
+            bookedByFlight.merge(counter, delta, Long::sum);
+            if (delta != 0) {
+                addTo(byRoute, counter.route, delta);
+                addTo(byOrigin, counter.origin, delta);
+                addTo(byDay, counter.day, delta);
+                total += delta;
+            }
+        }
+        for (FlightCounter counter : sealed.detached) {
+            bookedByFlight.remove(counter);
+        }
+    }
+
+    private Epoch enter() {
+        while (true) {
+            Epoch epoch = current;
+            epoch.entered.increment();
+            if (epoch == current) {
+                return epoch;
+            }
+            epoch.exited.increment(); // Sealed meanwhile; move on to the new one
+        }
+    }
+
+    private Epoch reenter(Epoch epoch) {
+        epoch.exit();
+        return enter();
+    }
+
+    // Groups that drop back to zero are removed, so a snapshot only lists groups with bookings
+    private static void addTo(Map<String, Long> groups, String key, long delta) {
+        groups.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private static Map<String, Long> sorted(Map<String, Long> groups) {
+        return Collections.unmodifiableMap(new TreeMap<>(groups));
+    }
+
+    // A flight's counted seats, packed with the epoch that last changed them
+    private static long pack(int epoch, int booked) {
+        return ((long) epoch << 32) | (booked & 0xFFFFFFFFL);
+    }
+
+    private static int epochOf(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int bookedOf(long state) {
+        return (int) state;
+    }
+
+    // Changes made while one epoch was current
+    private static final class Epoch {
+        final int number;
+        final ConcurrentHashMap<FlightCounter, LongAdder> changes = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<FlightCounter> detached = new ConcurrentLinkedQueue<>();
+        final AtomicInteger detachedCount = new AtomicInteger();
+        // Writers that entered and left; equal once the epoch is sealed and drained
+        final LongAdder entered = new LongAdder();
+        final LongAdder exited = new LongAdder();
+
+        Epoch(int number) {
+            this.number = number;
+        }
+
+        void add(FlightCounter counter, long delta) {
+            LongAdder change = changes.get(counter);
+            if (change == null) {
+                change = changes.computeIfAbsent(counter, k -> new LongAdder());
+            }
+            change.add(delta);
+        }
+
+        void exit() {
+            exited.increment();
+        }
+
+        // Wait for writers that entered before the seal. exited is read first: every exit it
+        // counts had its entry counted by the later read, so equal sums mean nobody is left.
+        void awaitWriters() {
+            while (true) {
+                long left = exited.sum();
+                if (left == entered.sum()) {
+                    return;
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    // One attached flight; a new counter is made each time a flight is attached
+    private static final class FlightCounter {
+        final Flight flight;
+        final String route;
+        final String origin;
+        final String day;
+        // pack(epoch, booked seats counted so far), or DETACHED once it has left the schedule
+        final AtomicLong state = new AtomicLong(pack(0, 0));
+
+        FlightCounter(Flight flight, String route, String origin, String day) {
+            this.flight = flight;
+            this.route = route;
+            this.origin = origin;
+            this.day = day;
+        }
+    }
+
+    // Seat count and booked seats of one flight in a snapshot
+    private static final class Seats {
+        final int total;
+        final long booked;
+
+        Seats(int total, long booked) {
+            this.total = total;
+            this.booked = booked;
+        }
+    }
+
+    // Booked seats at one point in time; group maps are sorted by key
+    static final class Snapshot {
+        private final long totalBookedSeats;
+        private final Map<Flight, Seats> byFlight;
+        private final Map<String, Long> byRoute;
+        private final Map<String, Long> byOrigin;
+        private final Map<String, Long> byDay;
+        private Map<String, Long> byFlightId; // Built on first use
+
+        Snapshot(long totalBookedSeats, Map<Flight, Seats> byFlight, Map<String, Long> byRoute,
+                Map<String, Long> byOrigin, Map<String, Long> byDay) {
+            this.totalBookedSeats = totalBookedSeats;
+            this.byFlight = byFlight;
+            this.byRoute = byRoute;
+            this.byOrigin = byOrigin;
+            this.byDay = byDay;
+        }
+
+        public long getTotalBookedSeats() {
+            return totalBookedSeats;
+        }
+
+        // Booked seats of a scheduled flight, 0 if it was not in the schedule
+        public long getBookedSeats(Flight flight) {
+            Seats seats = byFlight.get(flight);
+            return seats == null ? 0 : seats.booked;
+        }
+
+        // Seats left on a scheduled flight at the same point in time as its booked seats;
+        // a flight that was not in the schedule counts as unbooked
+        public long getAvailableSeats(Flight flight) {
+            Seats seats = byFlight.get(flight);
+            return seats == null ? flight.getTotalSeats() : seats.total - seats.booked;
+        }
+
+        public int getTotalSeats(Flight flight) {
+            Seats seats = byFlight.get(flight);
+            return seats == null ? flight.getTotalSeats() : seats.total;
+        }
+
+        // Same by flight ID (case-insensitive)
+        public long getBookedSeats(String flightId) {
+            Long booked = getBookedSeatsByFlight().get(flightId);
+            return booked == null ? 0 : booked;
+        }
+
+        // Every scheduled flight by ID, including those without bookings
+        public synchronized Map<String, Long> getBookedSeatsByFlight() {
+            if (byFlightId == null) {
+                Map<String, Long> sorted = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (Map.Entry<Flight, Seats> flight : byFlight.entrySet()) {
+                    sorted.put(flight.getKey().getFlightId(), flight.getValue().booked);
+                }
+                byFlightId = Collections.unmodifiableMap(sorted);
+            }
+            return byFlightId;
+        }
+
+        public int getFlightCount() {
+            return byFlight.size();
+        }
+
+        // Keyed "ORIGIN->DESTINATION"; groups without bookings are left out
+        public Map<String, Long> getBookedSeatsByRoute() {
+            return byRoute;
+        }
+
+        public Map<String, Long> getBookedSeatsByOrigin() {
+            return byOrigin;
+        }
+
+        // Keyed by departure date (yyyy-MM-dd), or UNKNOWN_DAY
+        public Map<String, Long> getBookedSeatsByDay() {
+            return byDay;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Finds direct, one-stop and two-stop itineraries between two airports.
+//
+// This is a time-dependent Dijkstra over FlightSchedule's per-origin departure index.
+// Partial trips sit in a queue ordered by arrival time; the earliest one is extended
+// with the departures from its airport inside the connection window. Trips that reach
+// the destination therefore come out in arrival order, and the search stops once
+// maxResults of them are out. Three rules keep the queue small:
+//  - a leg only goes to an airport that can still reach the destination with the legs
+//    that are left (airport-level adjacency from FlightSchedule.getOriginsServing)
+//  - the last allowed leg is looked up on the direct route to the destination instead
+//    of the stop's whole departure window
+//  - each airport is extended at most maxResults times per leg count
+// Results are ranked by arrival time, then by number of legs, then by later departure.
+class ConnectionSearch {
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private final int minConnectionMinutes;
+    private final int maxConnectionMinutes;
+    private final int maxStops;
+    private final int maxResults;
+
+    public ConnectionSearch() {
+        this(45, 12 * 60, 2, 10);
+    }
+
+    public ConnectionSearch(int minConnectionMinutes, int maxConnectionMinutes, int maxStops, int maxResults) {
+        if (minConnectionMinutes < 0 || maxConnectionMinutes < minConnectionMinutes) {
+            throw new IllegalArgumentException("Invalid connection time window.");
+        }
+        if (maxStops < 0 || maxStops > 2) {
+            throw new IllegalArgumentException("Only direct, one-stop and two-stop itineraries are supported.");
+        }
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("At least one result must be requested.");
+        }
+        this.minConnectionMinutes = minConnectionMinutes;
+        this.maxConnectionMinutes = maxConnectionMinutes;
+        this.maxStops = maxStops;
+        this.maxResults = maxResults;
+    }
+
+    // Itineraries leaving origin within 24 hours of earliestDeparture, best first
+    public List<Itinerary> search(String origin, String destination, String earliestDeparture) {
+        long from = FlightTimes.parse(earliestDeparture);
+        if (from == FlightTimes.UNKNOWN) {
+            throw new IllegalArgumentException("Invalid departure time: " + earliestDeparture);
+        }
+        return search(origin, destination, from, from + MINUTES_PER_DAY);
+    }
+
+    // Itineraries whose first leg departs within [from, to] (minutes, see FlightTimes), best first
+    public List<Itinerary> search(String origin, String destination, long from, long to) {
+        List<Itinerary> results = new ArrayList<>();
+        if (origin == null || destination == null) {
+            return results;
+        }
+        String originCode = origin.toUpperCase(Locale.ROOT);
+        String destinationCode = destination.toUpperCase(Locale.ROOT);
+        if (originCode.equals(destinationCode)) {
+            return results;
+        }
+
+        // Airports one leg away from the destination, and two legs away
+        Set<String> oneLegAway = FlightSchedule.getOriginsServing(destinationCode);
+        Set<String> twoLegsAway = new HashSet<>();
+        if (maxStops >= 2) {
+            for (String airport : oneLegAway) {
+                twoLegsAway.addAll(FlightSchedule.getOriginsServing(airport));
+            }
+        }
+        int maxLegs = maxStops + 1;
+
+        PriorityQueue<Trip> queue = new PriorityQueue<>(Trip.BY_ARRIVAL);
+        Iterable<Flight> firstLegs = maxLegs == 1
+                ? direct(originCode, destinationCode, from, to)
+                : FlightSchedule.departuresBetween(originCode, from, to);
+        for (Flight first : firstLegs) {
+            push(queue, null, first, originCode, destinationCode, maxLegs, oneLegAway, twoLegsAway);
+        }
+
+        Map<String, Integer> expansions = new HashMap<>();
+        while (!queue.isEmpty() && results.size() < maxResults) {
+            Trip trip = queue.poll();
+            if (trip.airport.equals(destinationCode)) {
+                results.add(trip.toItinerary());
+                continue;
+            }
+            if (expansions.merge(trip.airport + '/' + trip.legs, 1, Integer::sum) > maxResults) {
+                continue;
+            }
+            long earliest = trip.arrival + minConnectionMinutes;
+            long latest = trip.arrival + maxConnectionMinutes;
+            Iterable<Flight> nextLegs = trip.legs + 1 == maxLegs
+                    ? direct(trip.airport, destinationCode, earliest, latest)
+                    : FlightSchedule.departuresBetween(trip.airport, earliest, latest);
+            for (Flight next : nextLegs) {
+                push(queue, trip, next, originCode, destinationCode, maxLegs, oneLegAway, twoLegsAway);
+            }
+        }
+
+        results.sort(Itinerary.RANKING);
+        return results;
+    }
+
+    // Queue a trip extended by flight, unless it cannot lead to the destination
+    private static void push(PriorityQueue<Trip> queue, Trip previous, Flight flight, String originCode,
+            String destinationCode, int maxLegs, Set<String> oneLegAway, Set<String> twoLegsAway) {
+        long arrival = arrival(flight);
+        if (arrival == FlightTimes.UNKNOWN || flight.getAvailableSeats() <= 0) {
+            return;
+        }
+        String stop = flight.getDestination().getAirportCode().toUpperCase(Locale.ROOT);
+        int legs = previous == null ? 1 : previous.legs + 1;
+        if (!stop.equals(destinationCode)) {
+            int legsLeft = maxLegs - legs;
+            boolean reachable = (legsLeft >= 1 && oneLegAway.contains(stop))
+                    || (legsLeft >= 2 && twoLegsAway.contains(stop));
+            if (!reachable || stop.equals(originCode) || (previous != null && previous.visited(stop))) {
+                return;
+            }
+        }
+        queue.add(new Trip(previous, flight, stop, arrival, legs));
+    }
+
+    // Flights on the direct route that depart within [earliest, latest]
+    private static List<Flight> direct(String from, String to, long earliest, long latest) {
+        List<Flight> flights = new ArrayList<>();
+        for (Flight flight : FlightSchedule.searchFlights(from, to)) {
+            long departure = flight.getDepartureInstant();
+            if (departure != FlightTimes.UNKNOWN && departure >= earliest && departure <= latest) {
+                flights.add(flight);
+            }
+        }
+        return flights;
+    }
+
+    // Arrival instant; an arrival earlier than the departure is taken to be on the next day
+    private static long arrival(Flight flight) {
+        long departure = flight.getDepartureInstant();
+        long arrival = flight.getArrivalInstant();
+        if (departure == FlightTimes.UNKNOWN || arrival == FlightTimes.UNKNOWN) {
+            return FlightTimes.UNKNOWN;
+        }
+        return arrival < departure ? arrival + MINUTES_PER_DAY : arrival;
+    }
+
+    // A partial itinerary: its last flight, the airport it ends at and when it gets there
+    private static final class Trip {
+        static final Comparator<Trip> BY_ARRIVAL = Comparator.comparingLong((Trip trip) -> trip.arrival)
+                .thenComparingInt(trip -> trip.legs);
+
+        final Trip previous;
+        final Flight flight;
+        final String airport;
+        final long arrival;
+        final int legs;
+
+        Trip(Trip previous, Flight flight, String airport, long arrival, int legs) {
+            this.previous = previous;
+            this.flight = flight;
+            this.airport = airport;
+            this.arrival = arrival;
+            this.legs = legs;
+        }
+
+        boolean visited(String code) {
+            for (Trip trip = this; trip != null; trip = trip.previous) {
+                if (trip.airport.equals(code)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Itinerary toItinerary() {
+            Flight[] flights = new Flight[legs];
+            Trip trip = this;
+            for (int i = legs - 1; i >= 0; i--) {
+                flights[i] = trip.flight;
+                trip = trip.previous;
+            }
+            return new Itinerary(List.of(flights), flights[0].getDepartureInstant(), arrival);
+        }
+    }
+}
+
+// One result of a connection search: the legs in travel order with overall times
+class Itinerary {
+    // Earliest arrival first, then fewer legs, then the later (shorter) departure
+    static final Comparator<Itinerary> RANKING = Comparator.comparingLong(Itinerary::getArrivalInstant)
+            .thenComparingInt(itinerary -> itinerary.getLegs().size())
+            .thenComparing(Comparator.comparingLong(Itinerary::getDepartureInstant).reversed());
+
+    private final List<Flight> legs;
+    private final long departureInstant;
+    private final long arrivalInstant;
+
+    public Itinerary(List<Flight> legs, long departureInstant, long arrivalInstant) {
+        this.legs = legs;
+        this.departureInstant = departureInstant;
+        this.arrivalInstant = arrivalInstant;
+    }
+
+    public List<Flight> getLegs() {
+        return legs;
+    }
+
+    public int getStops() {
+        return legs.size() - 1;
+    }
+
+    public long getDepartureInstant() {
+        return departureInstant;
+    }
+
+    public long getArrivalInstant() {
+        return arrivalInstant;
+    }
+
+    public long getDurationMinutes() {
+        return arrivalInstant - departureInstant;
+    }
+
+    // Flight IDs in travel order, ready for Customer.bookItinerary
+    public List<String> getFlightIds() {
+        List<String> flightIds = new ArrayList<>(legs.size());
+        for (Flight leg : legs) {
+            flightIds.add(leg.getFlightId());
+        }
+        return flightIds;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(getStops() == 0 ? "Direct" : getStops() + (getStops() == 1 ? " stop" : " stops"))
+                .append(", ").append(getDurationMinutes() / 60).append("h ")
+                .append(getDurationMinutes() % 60).append("m: ");
+        for (int i = 0; i < legs.size(); i++) {
+            Flight leg = legs.get(i);
+            if (i > 0) {
+                text.append(" -> ");
+            }
+            text.append(leg.getFlightId()).append(" (").append(leg.getOrigin().getAirportCode())
+                    .append(' ').append(leg.getDepartureTime()).append(" - ")
+                    .append(leg.getDestination().getAirportCode()).append(' ').append(leg.getArrivalTime())
+                    .append(')');
+        }
+        return text.toString();
+    }
+}
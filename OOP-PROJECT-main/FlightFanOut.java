@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Passes a cancelled or rescheduled flight on to everyone booked on it.
+//
+// FlightSchedule calls this after the schedule change is done and its locks are
+// released. The affected manifest is cut into BATCH_SIZE batches that run on a
+// fork-join pool; each passenger is handled on its own (only that customer's bookings
+// are locked) and is notified through the asynchronous NotificationDispatcher.
+//
+// Cancelling drops the flight from every passenger's bookings. Rescheduling moves the
+// bookings onto the new Flight; FlightSchedule has reserved the passengers' seats on it
+// in manifest order before it became visible, and passengers who no longer fit (a
+// smaller airplane) were taken off the manifest and are told so here.
+//
+// Reloading the whole schedule drops the bookings held on the replaced Flight objects,
+// since the loaded seat counts may already include them; waitlists carry over to a
+// reloaded flight with the same ID and are closed for IDs that are gone.
+//
+// Every fan-out is timed and recorded in METRICS.
+class FlightFanOut {
+    static final int BATCH_SIZE = 64;
+    static final Metrics METRICS = new Metrics();
+
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // Run fan-outs on another pool, e.g. a dedicated one for a large cancellation wave
+    static void setPool(ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool;
+    }
+
+    // The flight is gone from the schedule: clear it from its passengers' bookings
+    // report=false leaves the fan-out line off the console; it is still in METRICS
+    static void cancelled(Flight flight, boolean report) {
+        long start = System.nanoTime();
+        Map<Customer, Integer> passengers = PassengerManifest.close(flight.getFlightId());
+        Outcome outcome = run(passengers, (customer, seats) -> {
+            customer.flightCancelled(flight, seats);
+            return true;
+        });
+        METRICS.record("cancel", flight.getFlightId(), outcome, System.nanoTime() - start, report);
+        FlightWaitlist.flightCancelled(flight);
+    }
+
+    // A schedule reload replaced the flight the passengers' seats were on (see
+    // PassengerManifest.closeReplaced); the reload prints its own summary
+    static void reloaded(Flight flight, Map<Customer, Integer> passengers) {
+        long start = System.nanoTime();
+        Outcome outcome = run(passengers, (customer, seats) -> {
+            customer.flightReloaded(flight, seats);
+            return true;
+        });
+        METRICS.record("reload", flight.getFlightId(), outcome, System.nanoTime() - start, false);
+        Flight replacement = FlightSchedule.findFlightById(flight.getFlightId());
+        if (replacement == null) {
+            FlightWaitlist.flightCancelled(flight);
+        } else {
+            FlightWaitlist.promote(replacement);
+        }
+    }
+
+    // previous was replaced by updated under the same flight ID. FlightSchedule has already
+    // moved the passengers' seats onto updated (see PassengerManifest.moveTo); kept and
+    // bumped say who got them, in manifest order.
+    static void rescheduled(Flight previous, Flight updated, Map<Customer, Integer> kept,
+            Map<Customer, Integer> bumped, boolean report) {
+        long start = System.nanoTime();
+        Map<Customer, Integer> passengers = new LinkedHashMap<>(kept);
+        passengers.putAll(bumped);
+        Outcome outcome = run(passengers, (customer, seats) -> {
+            boolean keptSeats = !bumped.containsKey(customer);
+            customer.flightRescheduled(previous, updated, seats, keptSeats);
+            return keptSeats;
+        });
+        METRICS.record("reschedule", updated.getFlightId(), outcome, System.nanoTime() - start, report);
+        // A bigger airplane may have room for people on the waitlist
+        FlightWaitlist.promote(updated);
+    }
+
+    private static Outcome run(Map<Customer, Integer> passengers, PassengerAction action) {
+        List<Map.Entry<Customer, Integer>> entries = new ArrayList<>(passengers.entrySet());
+        Outcome outcome = new Outcome();
+        if (entries.isEmpty()) {
+            return outcome;
+        }
+        pool.invoke(new Batch(entries, 0, entries.size(), action, outcome));
+        return outcome;
+    }
+
+    // What to do for one passenger; returns false if they lost their seats
+    private interface PassengerAction {
+        boolean apply(Customer customer, int seats);
+    }
+
+    private static final class Outcome {
+        final AtomicInteger passengers = new AtomicInteger();
+        final AtomicInteger seats = new AtomicInteger();
+        final AtomicInteger bumped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+    }
+
+    // Splits the passenger list in half until a range fits in one batch
+    private static final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized
+        private final transient List<Map.Entry<Customer, Integer>> entries;
+        private final int from;
+        private final int to;
+        private final transient PassengerAction action;
+        private final transient Outcome outcome;
+
+        Batch(List<Map.Entry<Customer, Integer>> entries, int from, int to, PassengerAction action, Outcome outcome) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+            this.outcome = outcome;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Batch(entries, from, middle, action, outcome),
+                        new Batch(entries, middle, to, action, outcome));
+                return;
+            }
+            outcome.batches.incrementAndGet();
+            for (int i = from; i < to; i++) {
+                Map.Entry<Customer, Integer> passenger = entries.get(i);
+                try {
+                    if (!action.apply(passenger.getKey(), passenger.getValue())) {
+                        outcome.bumped.incrementAndGet();
+                    }
+                    outcome.passengers.incrementAndGet();
+                    outcome.seats.addAndGet(passenger.getValue());
+                } catch (RuntimeException e) {
+                    // One passenger's failure must not stop the others from being told
+                    outcome.failed.incrementAndGet();
+                    System.out.println("Error updating passenger " + passenger.getKey().getName() + ": "
+                            + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Totals over all fan-outs plus the most recent one
+    static final class Metrics {
+        private final AtomicLong fanOuts = new AtomicLong();
+        private final AtomicLong passengers = new AtomicLong();
+        private final AtomicLong seats = new AtomicLong();
+        private final AtomicLong bumped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private volatile String last = "No fan-outs yet.";
+
+        void record(String kind, String flightId, Outcome outcome, long elapsedNanos, boolean report) {
+            fanOuts.incrementAndGet();
+            passengers.addAndGet(outcome.passengers.get());
+            seats.addAndGet(outcome.seats.get());
+            bumped.addAndGet(outcome.bumped.get());
+            failed.addAndGet(outcome.failed.get());
+            nanos.addAndGet(elapsedNanos);
+            last = String.format(Locale.ROOT,
+                    "%s %s: %d passengers (%d seats, %d bumped, %d failed) in %d batches, %.2f ms, %.0f passengers/s",
+                    kind, flightId, outcome.passengers.get(), outcome.seats.get(), outcome.bumped.get(),
+                    outcome.failed.get(), outcome.batches.get(), elapsedNanos / 1e6,
+                    perSecond(outcome.passengers.get(), elapsedNanos));
+            if (report && outcome.passengers.get() > 0) {
+                System.out.println("Passenger fan-out " + last);
+            }
+        }
+
+        public long getFanOutCount() {
+            return fanOuts.get();
+        }
+
+        public long getPassengerCount() {
+            return passengers.get();
+        }
+
+        public long getSeatCount() {
+            return seats.get();
+        }
+
+        public long getBumpedCount() {
+            return bumped.get();
+        }
+
+        public long getFailedCount() {
+            return failed.get();
+        }
+
+        // Passengers handled per second over all fan-outs
+        public double getPassengersPerSecond() {
+            return perSecond(passengers.get(), nanos.get());
+        }
+
+        public String getLastFanOut() {
+            return last;
+        }
+
+        private static double perSecond(long count, long elapsedNanos) {
+            return elapsedNanos <= 0 ? 0 : count * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.List;
+
+// Command-line converter between the TSV flights file and the binary snapshot.
+// Usage: java FlightFileConverter <to-binary|to-tsv> <input file> <output file>
+public class FlightFileConverter {
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: java FlightFileConverter <to-binary|to-tsv> <input file> <output file>");
+            return;
+        }
+
+        FlightFileFormat target;
+        switch (args[0].toLowerCase()) {
+            case "to-binary":
+                target = FlightFileFormat.BINARY;
+                break;
+            case "to-tsv":
+                target = FlightFileFormat.TSV;
+                break;
+            default:
+                System.out.println("Invalid conversion. Use 'to-binary' or 'to-tsv'.");
+                return;
+        }
+
+        convert(args[1], args[2], target);
+    }
+
+    // Read input in whatever format it is in and write it to output in the target format
+    public static void convert(String input, String output, FlightFileFormat target) {
+        List<Flight> flights = FileManager.loadFlightsFromFile(input, FlightFileFormat.detect(input));
+        FileManager.saveFlightsToFile(flights, output, target);
+        System.out.println("Converted " + flights.size() + " flights from " + input + " to " + output + ".");
+    }
+}
@@ -0,0 +1,564 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Local HTTP/JSON front end on the JDK's built-in server.
+//
+//   GET    /flights?origin=&destination=&offset=&limit=   list or search flights
+//   GET    /flights/{id}                                   one flight
+//   GET    /connections?origin=&destination=&departure=    direct and connecting itineraries
+//   GET    /bookings?email=                                a customer's booked flights
+//   POST   /bookings   {"email", "name", "flightId", "seats", "waitlist"}   book (or join the waitlist)
+//   DELETE /bookings?email=&flightId=                      cancel one booked seat
+//
+// POST bodies may be a flat JSON object or form-encoded. Every request runs on its own
+// virtual thread when the JVM has them (Java 21+). Older JVMs fall back to a fixed pool
+// of PLATFORM_THREADS platform threads with a bounded queue; when both are full the
+// server's dispatcher thread runs the request itself, which stops it accepting more
+// connections until a thread frees up, so load is pushed back onto the listen backlog
+// instead of growing the thread count. Handlers call FlightSchedule and Customer directly, which are
+// already safe for concurrent use. Customers are looked up by e-mail address and
+// created on their first booking, quiet so that requests print nothing to the console.
+class FlightHttpServer {
+    static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10_000;
+    private static final int MAX_BODY = 64 * 1024;
+    // Fallback pool for JVMs without virtual threads; requests mostly wait on the journal
+    static final int PLATFORM_THREADS = 200;
+    private static final int PLATFORM_QUEUE = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+
+    public FlightHttpServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        executor = virtualThreads ? virtual : newPlatformThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext("/flights", exchange -> handle(exchange, this::flights));
+        server.createContext("/connections", exchange -> handle(exchange, this::connections));
+        server.createContext("/bookings", exchange -> handle(exchange, this::bookings));
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("HTTP server listening on http://localhost:" + getPort()
+                + (virtualThreads ? " (virtual threads)" : " (platform threads)"));
+    }
+
+    // Stop accepting requests, give running ones up to the delay to finish
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // One virtual thread per request on Java 21+, looked up reflectively so the code still
+    // compiles and runs on Java 17; null if the JVM has none
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(PLATFORM_THREADS, PLATFORM_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PLATFORM_QUEUE), task -> {
+                    Thread thread = new Thread(task, "http-request");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true); // Idle servers do not keep 200 threads around
+        return pool;
+    }
+
+    // Thrown by handlers to answer with an error status and message
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, HttpError;
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void flights(HttpExchange exchange) throws IOException, HttpError {
+        String path = requirePath(exchange, "/flights", true);
+        requireMethod(exchange, "GET");
+        if (path.length() > "/flights/".length()) {
+            String flightId = URLDecoder.decode(path.substring("/flights/".length()), StandardCharsets.UTF_8);
+            Flight flight = FlightSchedule.findFlightById(flightId);
+            if (flight == null) {
+                throw new HttpError(404, "Flight not found: " + flightId);
+            }
+            StringBuilder json = new StringBuilder();
+            flight(json, flight);
+            send(exchange, 200, json);
+            return;
+        }
+
+        Map<String, String> query = query(exchange);
+        String origin = query.get("origin");
+        String destination = query.get("destination");
+        List<Flight> flights;
+        if (origin != null && destination != null) {
+            flights = FlightSchedule.searchFlights(origin, destination);
+        } else if (origin != null) {
+            flights = FlightSchedule.searchFlightsFrom(origin);
+        } else if (destination != null) {
+            flights = FlightSchedule.searchFlightsTo(destination);
+        } else {
+            flights = FlightSchedule.getFlights();
+        }
+        int offset = intParam(query, "offset", 0, Integer.MAX_VALUE);
+        int limit = intParam(query, "limit", DEFAULT_LIMIT, MAX_LIMIT);
+        int end = (int) Math.min(flights.size(), (long) offset + limit);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0); // Streamed
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            StringBuilder json = new StringBuilder(256);
+            json.append("{\"total\":").append(flights.size()).append(",\"offset\":").append(offset)
+                    .append(",\"flights\":[");
+            for (int i = offset; i < end; i++) {
+                if (i > offset) {
+                    json.append(',');
+                }
+                flight(json, flights.get(i));
+                out.append(json);
+                json.setLength(0);
+            }
+            out.append(json).append("]}");
+        }
+    }
+
+    private void connections(HttpExchange exchange) throws IOException, HttpError {
+        requirePath(exchange, "/connections", false);
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        List<Itinerary> itineraries = new ConnectionSearch().search(required(query, "origin"),
+                required(query, "destination"), required(query, "departure"));
+        StringBuilder json = new StringBuilder("{\"itineraries\":[");
+        for (int i = 0; i < itineraries.size(); i++) {
+            Itinerary itinerary = itineraries.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"stops\":").append(itinerary.getStops())
+                    .append(",\"durationMinutes\":").append(itinerary.getDurationMinutes()).append(",\"legs\":[");
+            for (int j = 0; j < itinerary.getLegs().size(); j++) {
+                json.append(j == 0 ? "" : ",");
+                flight(json, itinerary.getLegs().get(j));
+            }
+            json.append("]}");
+        }
+        send(exchange, 200, json.append("]}"));
+    }
+
+    private void bookings(HttpExchange exchange) throws IOException, HttpError {
+        requirePath(exchange, "/bookings", false);
+        String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+        switch (method) {
+            case "GET": {
+                Customer customer = customer(required(query(exchange), "email"), null, false);
+                StringBuilder json = new StringBuilder("{\"bookings\":[");
+                List<Flight> booked = customer.getBookings();
+                for (int i = 0; i < booked.size(); i++) {
+                    json.append(i == 0 ? "" : ",");
+                    flight(json, booked.get(i));
+                }
+                send(exchange, 200, json.append("]}"));
+                return;
+            }
+            case "POST": {
+                Map<String, String> body = body(exchange);
+                Customer customer = customer(required(body, "email"), body.get("name"), true);
+                String flightId = required(body, "flightId");
+                int seats = intParam(body, "seats", 1, Integer.MAX_VALUE);
+                BookingResult result = Boolean.parseBoolean(body.get("waitlist"))
+                        ? customer.bookOrWaitlist(flightId, seats)
+                        : customer.bookSeats(flightId, seats);
+                send(exchange, status(result.getStatus()), bookingResult(result));
+                return;
+            }
+            case "DELETE": {
+                Map<String, String> query = query(exchange);
+                Customer customer = customer(required(query, "email"), null, false);
+                String flightId = required(query, "flightId");
+                try {
+                    customer.cancelBooking(flightId);
+                } catch (Exception e) {
+                    throw new HttpError(404, e.getMessage());
+                }
+                send(exchange, 200, new StringBuilder("{\"cancelled\":").append(string(flightId)).append('}'));
+                return;
+            }
+            default:
+                throw new HttpError(405, "Method not allowed: " + method);
+        }
+    }
+
+    private Customer customer(String email, String name, boolean create) throws HttpError {
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        if (create) {
+            return customers.computeIfAbsent(key, k -> {
+                // Per-request console messages would serialize the request threads on System.out
+                Customer customer = new Customer(name == null ? email : name, email);
+                customer.setQuiet(true);
+                return customer;
+            });
+        }
+        Customer customer = customers.get(key);
+        if (customer == null) {
+            throw new HttpError(404, "Unknown customer: " + email);
+        }
+        return customer;
+    }
+
+    private static int status(BookingStatus status) {
+        switch (status) {
+            case CONFIRMED:
+                return 201;
+            case WAITLISTED:
+                return 202;
+            case FLIGHT_NOT_FOUND:
+                return 404;
+            case NO_SEATS:
+            case NO_ADJACENT_SEATS:
+            case ALREADY_WAITLISTED:
+                return 409;
+            default:
+                return 400;
+        }
+    }
+
+    private static StringBuilder bookingResult(BookingResult result) {
+        StringBuilder json = new StringBuilder("{\"status\":").append(string(result.getStatus().name()))
+                .append(",\"seats\":").append(result.getSeats());
+        if (result.getFailedFlightId() != null) {
+            json.append(",\"flightId\":").append(string(result.getFailedFlightId()));
+        }
+        if (result.getStatus() == BookingStatus.WAITLISTED) {
+            json.append(",\"waitlistPosition\":").append(result.getWaitlistPosition());
+        }
+        json.append(",\"flights\":[");
+        for (int i = 0; i < result.getFlights().size(); i++) {
+            json.append(i == 0 ? "" : ",");
+            flight(json, result.getFlights().get(i));
+        }
+        return json.append("]}");
+    }
+
+    private static void flight(StringBuilder json, Flight flight) {
+        json.append("{\"id\":").append(string(flight.getFlightId()));
+        airport(json.append(",\"origin\":"), flight.getOrigin());
+        airport(json.append(",\"destination\":"), flight.getDestination());
+        json.append(",\"departure\":").append(string(flight.getDepartureTime()))
+                .append(",\"arrival\":").append(string(flight.getArrivalTime()))
+                .append(",\"airplane\":").append(string(flight.getAirplane().getAirplaneId()))
+                .append(",\"totalSeats\":").append(flight.getTotalSeats())
+                .append(",\"availableSeats\":").append(flight.getAvailableSeats()).append('}');
+    }
+
+    private static void airport(StringBuilder json, Airport airport) {
+        json.append("{\"code\":").append(string(airport.getAirportCode()))
+                .append(",\"name\":").append(string(airport.getName()))
+                .append(",\"location\":").append(string(airport.getLocation())).append('}');
+    }
+
+    // JSON string literal, or null
+    private static String string(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            send(exchange, status, "{\"error\":" + string(message) + "}");
+        } catch (IOException | IllegalStateException e) {
+            // Headers already sent or the client went away; nothing more to tell it
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws HttpError {
+        if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+            throw new HttpError(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    // A context also matches longer paths ("/flightsXYZ"); only the context itself,
+    // its trailing slash and, where allowed, paths below it are served
+    private static String requirePath(HttpExchange exchange, String context, boolean subpaths) throws HttpError {
+        String path = exchange.getRequestURI().getPath();
+        boolean below = path.startsWith(context + "/");
+        if (!path.equals(context) && !(below && (subpaths || path.length() == context.length() + 1))) {
+            throw new HttpError(404, "Not found: " + path);
+        }
+        return path;
+    }
+
+    private static String required(Map<String, String> parameters, String name) throws HttpError {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            throw new HttpError(400, "Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> parameters, String name, int defaultValue, int max)
+            throws HttpError {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number < 0) {
+                throw new HttpError(400, "Parameter " + name + " cannot be negative.");
+            }
+            return Math.min(number, max);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Parameter " + name + " must be a number.");
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        return formDecode(exchange.getRequestURI().getRawQuery());
+    }
+
+    // Request body as a flat JSON object or form-encoded parameters
+    private static Map<String, String> body(HttpExchange exchange) throws IOException, HttpError {
+        InputStream in = exchange.getRequestBody();
+        byte[] bytes = in.readNBytes(MAX_BODY + 1);
+        if (bytes.length > MAX_BODY) {
+            throw new HttpError(413, "Request body too large.");
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8).trim();
+        return text.startsWith("{") ? FlatJson.parse(text) : formDecode(text);
+    }
+
+    private static Map<String, String> formDecode(String encoded) {
+        Map<String, String> parameters = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // Parser for the one shape of JSON the API accepts: an object whose values are
+    // strings, numbers, booleans or null. Values are returned as their text.
+    private static final class FlatJson {
+        private final String text;
+        private int position;
+
+        private FlatJson(String text) {
+            this.text = text;
+        }
+
+        static Map<String, String> parse(String text) {
+            FlatJson parser = new FlatJson(text);
+            Map<String, String> values = new HashMap<>();
+            parser.expect('{');
+            if (parser.peek() == '}') {
+                parser.position++;
+            } else {
+                while (true) {
+                    String name = parser.string();
+                    parser.expect(':');
+                    values.put(name, parser.value());
+                    char next = parser.next();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw parser.error("',' or '}'");
+                    }
+                }
+            }
+            if (parser.peek() != 0) {
+                throw parser.error("end of input");
+            }
+            return values;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+                    && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw error("a string, number, boolean or null");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("four hex digits");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+            throw error("closing quote");
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("'" + expected + "'");
+            }
+        }
+
+        private char next() {
+            char c = peek();
+            if (c != 0) {
+                position++;
+            }
+            return c;
+        }
+
+        // Next non-whitespace character without consuming it, 0 at the end
+        private char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        private IllegalArgumentException error(String expected) {
+            return new IllegalArgumentException("Invalid JSON at position " + position + ": expected " + expected + ".");
+        }
+    }
+}
@@ -0,0 +1,596 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead journal for schedule and seat changes.
+//
+// Every FlightSchedule mutation and every seat reservation/release is appended as
+// a small record: length (int), then sequence (long), type (byte) and payload,
+// then a CRC32 of those bytes. Appenders take a sequence from an atomic counter and
+// put the record on a lock-free queue; a single writer thread writes whatever is
+// queued in one go and fsyncs once (group commit), so many concurrent bookings share
+// one fsync. A sequence counts as durable once it and every sequence before it are on
+// disk, and only the threads waiting for sequences up to that point are woken.
+//
+// On startup, recover replays the records newer than the base snapshot's journal
+// sequence and cuts off a torn tail left by a crash. compact folds the journal back
+// into a fresh BinaryFlightSnapshot and empties it. Records already in the snapshot
+// are skipped on replay, so a crash between those two steps is harmless.
+//
+// Seats are taken with a plain CAS on the Flight, outside any journal lock, so seat
+// records of one flight can reach the file in a different order than their CASes ran.
+// Each record therefore carries the flight's seat version from that CAS, and the
+// flight's incarnation: the sequence of the ADD or UPDATE record that put that Flight
+// object in the schedule (0 for flights in the snapshot). A flight record carries the
+// seats and seat version it was encoded with. Replay rebuilds each flight from its last
+// flight record plus the seat records of the same incarnation with a newer version;
+// a result outside 0..capacity can only mean a damaged journal, and recover fails.
+// Seat records of a replaced or cancelled Flight object belong to an old incarnation
+// and are ignored; once the object is retired they are not written at all.
+//
+// Seat changes wait for their record's fsync before returning by default. Setting
+// -Dflight.journal.syncSeats=false acknowledges them as soon as they are queued, which
+// takes the fsync off the booking path at the cost of losing the last few milliseconds
+// of bookings in a crash. Schedule changes always wait.
+class FlightJournal {
+    static final String SYNC_SEATS_PROPERTY = "flight.journal.syncSeats";
+
+    static final byte ADD = 1;
+    static final byte UPDATE = 2;
+    static final byte CANCEL = 3;
+    static final byte RESERVE = 4;
+    static final byte RELEASE = 5;
+
+    // Returned for a seat change on a replaced or cancelled Flight object; awaitDurable
+    // returns at once for it
+    static final long NOT_RECORDED = -1;
+
+    private final String journalFile;
+    private final String snapshotFile;
+    private final FileChannel channel;
+    private final boolean syncSeats;
+
+    // Appenders hold the shared side while they change state and log it;
+    // compact and close hold the exclusive side, so no append is half done meanwhile
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+    private final AtomicLong appendedSequence = new AtomicLong();
+    private final ConcurrentLinkedQueue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private volatile long durableSequence;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private volatile Thread writer;
+
+    // Threads in awaitDurable, ordered by the sequence they wait for
+    private final ConcurrentSkipListSet<Waiter> waiters = new ConcurrentSkipListSet<>();
+    private final AtomicLong nextWaiterId = new AtomicLong();
+
+    public FlightJournal(String journalFile, String snapshotFile) throws IOException {
+        this(journalFile, snapshotFile, !"false".equalsIgnoreCase(System.getProperty(SYNC_SEATS_PROPERTY, "true").trim()));
+    }
+
+    // syncSeats=false lets seat changes return before their record is on disk
+    public FlightJournal(String journalFile, String snapshotFile, boolean syncSeats) throws IOException {
+        this.journalFile = journalFile;
+        this.snapshotFile = snapshotFile;
+        this.syncSeats = syncSeats;
+        this.channel = FileChannel.open(Paths.get(journalFile), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Load the last snapshot (or the flights from fallback if there is none yet), replay the
+    // journal on top of it and start accepting new records. Returns the recovered schedule.
+    public List<Flight> recover(Supplier<List<Flight>> fallback) throws IOException {
+        List<Flight> base;
+        long baseSequence = 0;
+        if (new File(snapshotFile).exists()) {
+            base = BinaryFlightSnapshot.read(snapshotFile);
+            baseSequence = BinaryFlightSnapshot.readJournalSequence(snapshotFile);
+        } else {
+            base = fallback.get();
+        }
+
+        Replay replay = new Replay();
+        for (Flight flight : base) {
+            replay.flights.putIfAbsent(key(flight.getFlightId()), new ReplayedFlight(flight, 0, 0));
+        }
+
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+        while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+            // A single read may return fewer bytes than asked for
+        }
+        data.flip();
+        long lastSequence = baseSequence;
+        int replayed = 0;
+        int validEnd = 0;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 4) {
+            int start = data.position();
+            int length = data.getInt();
+            if (length <= 0 || data.remaining() < length + 4) {
+                break; // Torn record at the tail
+            }
+            byte[] body = new byte[length];
+            data.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != data.getInt()) {
+                data.position(start);
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(body);
+            long sequence = record.getLong();
+            if (sequence > baseSequence) {
+                replay.apply(sequence, record.get(), record);
+                replayed++;
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            validEnd = data.position();
+        }
+        List<Flight> flights = replay.finish();
+        if (validEnd < channel.size()) {
+            System.out.println("Discarded " + (channel.size() - validEnd) + " bytes of incomplete journal data.");
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " journal records from " + journalFile + ".");
+        }
+
+        appendedSequence.set(lastSequence);
+        durableSequence = lastSequence;
+        Thread thread = new Thread(this::writeLoop, "flight-journal-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+        return flights;
+    }
+
+    void lockShared() {
+        gate.readLock().lock();
+    }
+
+    void unlockShared() {
+        gate.readLock().unlock();
+    }
+
+    // The log methods only queue the record and return its sequence; call awaitDurable
+    // with it once any locks are released. Callers hold the shared side of the gate.
+    long logAdd(Flight flight) {
+        return appendFlight(ADD, flight, true);
+    }
+
+    // From here on seat changes on previous are no longer recorded: they belong to an
+    // incarnation replay no longer applies
+    long logUpdate(Flight previous, Flight updated) {
+        if (previous != updated) {
+            previous.setJournalRetired(true);
+        }
+        return appendFlight(UPDATE, updated, previous != updated);
+    }
+
+    long logCancel(Flight flight) {
+        flight.setJournalRetired(true);
+        return append(nextSequence(), CANCEL, encodeSeats(flight.getFlightId(), 0, 0, 0));
+    }
+
+    // Record seats taken by a CAS that produced the given seat version; returns
+    // NOT_RECORDED if the flight has already left the schedule
+    long logReserve(Flight flight, int seats, long version) {
+        return appendSeats(RESERVE, flight, seats, version);
+    }
+
+    long logRelease(Flight flight, int seats, long version) {
+        return appendSeats(RELEASE, flight, seats, version);
+    }
+
+    // Wait for a seat change's record if seat changes are synchronous (the default)
+    void awaitSeatChange(long sequence) {
+        if (syncSeats) {
+            awaitDurable(sequence);
+        }
+    }
+
+    // Block until the record with this sequence (and every one before it) is on disk
+    void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        Waiter waiter = new Waiter(sequence, Thread.currentThread(), nextWaiterId.incrementAndGet());
+        waiters.add(waiter);
+        try {
+            // The writer publishes durableSequence before it wakes anyone, so a wake-up
+            // between the check and park leaves a permit and park returns at once
+            while (durableSequence < sequence) {
+                IOException error = failure;
+                if (error != null) {
+                    throw new IllegalStateException("Journal write failed: " + error.getMessage(), error);
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal.");
+                }
+            }
+        } finally {
+            waiters.remove(waiter);
+        }
+    }
+
+    // Write the given schedule as a new snapshot and empty the journal. The caller must
+    // make sure the schedule does not change meanwhile (FlightSchedule holds its
+    // structure lock); seat changes are held off here. retired lists Flight objects that
+    // leave the schedule with this compaction; their later seat changes are not recorded.
+    void compact(List<Flight> flights, Collection<Flight> retired) throws IOException {
+        gate.writeLock().lock();
+        try {
+            for (Flight flight : retired) {
+                flight.setJournalRetired(true);
+            }
+            long sequence = appendedSequence.get();
+            awaitDurable(sequence);
+            BinaryFlightSnapshot.write(flights, snapshotFile, sequence);
+            // Replay starts every snapshot flight at incarnation 0 and seat version 0
+            for (Flight flight : flights) {
+                flight.setJournalRetired(false);
+                flight.setJournalIncarnation(0);
+                flight.resetSeatVersion();
+            }
+            // The writer is idle: everything queued is durable and appenders are held off
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            System.out.println("Journal compacted into snapshot: " + snapshotFile);
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    void compact(List<Flight> flights) throws IOException {
+        compact(flights, Collections.emptyList());
+    }
+
+    // Flush what is queued and stop the writer thread
+    public void close() throws IOException {
+        gate.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            gate.writeLock().unlock();
+        }
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+    }
+
+    private long nextSequence() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+        return appendedSequence.incrementAndGet();
+    }
+
+    // A new incarnation takes the record's own sequence, set before the flight is visible
+    // to bookings. The payload is built from one read of the seat state, so the seats and
+    // the version in it belong together.
+    private long appendFlight(byte type, Flight flight, boolean newIncarnation) {
+        long sequence = nextSequence();
+        if (newIncarnation) {
+            flight.setJournalIncarnation(sequence);
+            flight.setJournalRetired(false);
+        }
+        return append(sequence, type, encodeFlight(flight));
+    }
+
+    private long appendSeats(byte type, Flight flight, int seats, long version) {
+        if (flight.isJournalRetired()) {
+            return NOT_RECORDED;
+        }
+        long sequence = nextSequence();
+        return append(sequence, type, encodeSeats(flight.getFlightId(), flight.getJournalIncarnation(), version, seats));
+    }
+
+    private long append(long sequence, byte type, byte[] payload) {
+        int length = 8 + 1 + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(4 + length + 4);
+        record.putInt(length);
+        record.putLong(sequence);
+        record.put(type);
+        record.put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length);
+        record.putInt((int) crc.getValue());
+        pending.add(record.array());
+        LockSupport.unpark(writer);
+        return sequence;
+    }
+
+    // Group commit: take everything queued so far, write it in one go and fsync once.
+    // Sequences may be queued slightly out of order, so durableSequence only moves up to
+    // the end of the run of sequences that are all written.
+    private void writeLoop() {
+        long durable = durableSequence;
+        PriorityQueue<Long> ahead = new PriorityQueue<>(); // Written, but after a gap
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(1 << 16);
+        List<Long> sequences = new ArrayList<>();
+        while (true) {
+            byte[] record;
+            while ((record = pending.poll()) != null) {
+                batch.write(record, 0, record.length);
+                sequences.add(ByteBuffer.wrap(record, 4, 8).getLong());
+            }
+            if (batch.size() == 0) {
+                if (closed && pending.isEmpty()) {
+                    return; // Closed and drained
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+                for (Waiter waiter : waiters) {
+                    LockSupport.unpark(waiter.thread);
+                }
+                return;
+            }
+            for (long sequence : sequences) {
+                if (sequence == durable + 1) {
+                    durable = sequence;
+                } else {
+                    ahead.add(sequence);
+                }
+            }
+            while (!ahead.isEmpty() && ahead.peek() == durable + 1) {
+                durable = ahead.poll();
+            }
+            batch.reset();
+            sequences.clear();
+            durableSequence = durable;
+            wake(durable);
+        }
+    }
+
+    // Unpark only the threads whose sequence is now durable
+    private void wake(long durable) {
+        Waiter waiter;
+        while ((waiter = waiters.isEmpty() ? null : first()) != null && waiter.sequence <= durable) {
+            if (waiters.remove(waiter)) {
+                LockSupport.unpark(waiter.thread);
+            }
+        }
+    }
+
+    private Waiter first() {
+        try {
+            return waiters.first();
+        } catch (NoSuchElementException e) {
+            return null; // Emptied since isEmpty was checked
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final long sequence;
+        final Thread thread;
+        final long id;
+
+        Waiter(long sequence, Thread thread, long id) {
+            this.sequence = sequence;
+            this.thread = thread;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int bySequence = Long.compare(sequence, other.sequence);
+            return bySequence != 0 ? bySequence : Long.compare(id, other.id);
+        }
+    }
+
+    // A flight as rebuilt by replay: the Flight from its last flight record, with the
+    // incarnation and seat version that record carried
+    private static final class ReplayedFlight {
+        final Flight flight;
+        final long incarnation;
+        final long version;
+
+        ReplayedFlight(Flight flight, long incarnation, long version) {
+            this.flight = flight;
+            this.incarnation = incarnation;
+            this.version = version;
+        }
+    }
+
+    // One RESERVE (negative seats) or RELEASE (positive seats) record
+    private static final class SeatChange {
+        final long sequence;
+        final long incarnation;
+        final long version;
+        final int seats;
+
+        SeatChange(long sequence, long incarnation, long version, int seats) {
+            this.sequence = sequence;
+            this.incarnation = incarnation;
+            this.version = version;
+            this.seats = seats;
+        }
+    }
+
+    // Flight records are applied as they come; seat records are collected and applied at
+    // the end, once the last flight record of every ID is known
+    private static final class Replay {
+        final Map<String, ReplayedFlight> flights = new LinkedHashMap<>();
+        final Map<String, List<SeatChange>> seatChanges = new HashMap<>();
+
+        void apply(long sequence, byte type, ByteBuffer record) throws IOException {
+            switch (type) {
+                case ADD: {
+                    ReplayedFlight replayed = decodeFlight(sequence, record);
+                    flights.putIfAbsent(key(replayed.flight.getFlightId()), replayed);
+                    break;
+                }
+                case UPDATE: {
+                    ReplayedFlight replayed = decodeFlight(sequence, record);
+                    flights.replace(key(replayed.flight.getFlightId()), replayed);
+                    break;
+                }
+                case CANCEL:
+                    flights.remove(key(readString(record)));
+                    break;
+                case RESERVE:
+                case RELEASE: {
+                    String flightId = readString(record);
+                    long incarnation = record.getLong();
+                    long version = record.getLong();
+                    int seats = record.getInt();
+                    seatChanges.computeIfAbsent(key(flightId), k -> new ArrayList<>())
+                            .add(new SeatChange(sequence, incarnation, version, type == RESERVE ? -seats : seats));
+                    break;
+                }
+                default:
+                    System.out.println("Skipped unknown journal record type: " + type);
+            }
+        }
+
+        List<Flight> finish() throws IOException {
+            List<Flight> result = new ArrayList<>(flights.size());
+            for (Map.Entry<String, ReplayedFlight> entry : flights.entrySet()) {
+                ReplayedFlight replayed = entry.getValue();
+                Flight flight = replayed.flight;
+                long seats = flight.getAvailableSeats();
+                long version = replayed.version;
+                long lastSequence = 0;
+                for (SeatChange change : seatChanges.getOrDefault(entry.getKey(), Collections.emptyList())) {
+                    if (change.incarnation == replayed.incarnation && change.version > replayed.version) {
+                        seats += change.seats;
+                        version = Math.max(version, change.version);
+                        lastSequence = Math.max(lastSequence, change.sequence);
+                    }
+                }
+                if (seats < 0 || seats > flight.getTotalSeats()) {
+                    throw new IOException("Journal records up to " + lastSequence + " leave flight " + flight.getFlightId()
+                            + " with " + seats + " of " + flight.getTotalSeats() + " seats available; the journal is damaged.");
+                }
+                flight.restoreSeatState((int) seats, version);
+                flight.setJournalIncarnation(replayed.incarnation);
+                result.add(flight);
+            }
+            return result;
+        }
+    }
+
+    private static String key(String flightId) {
+        return flightId.toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] encodeFlight(Flight flight) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeString(out, flight.getFlightId());
+            writeString(out, flight.getOrigin().getAirportCode());
+            writeString(out, flight.getOrigin().getName());
+            writeString(out, flight.getOrigin().getLocation());
+            writeString(out, flight.getDestination().getAirportCode());
+            writeString(out, flight.getDestination().getName());
+            writeString(out, flight.getDestination().getLocation());
+            writeString(out, flight.getDepartureTime());
+            writeString(out, flight.getArrivalTime());
+            writeString(out, flight.getAirplane().getAirplaneId());
+            writeString(out, flight.getAirplane().getAirplaneModel());
+            long seatState = flight.getSeatState();
+            out.writeInt(flight.getTotalSeats());
+            out.writeInt(Flight.seatsOf(seatState));
+            out.writeLong(flight.getJournalIncarnation());
+            out.writeLong(Flight.versionOf(seatState));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Cannot happen with an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ReplayedFlight decodeFlight(long sequence, ByteBuffer record) throws IOException {
+        String flightId = readString(record);
+        Airport origin = AirportDirectory.resolve(readString(record), readString(record), readString(record));
+        Airport destination = AirportDirectory.resolve(readString(record), readString(record), readString(record));
+        String departureTime = readString(record);
+        String arrivalTime = readString(record);
+        String airplaneId = readString(record);
+        String airplaneModel = readString(record);
+        int capacity = record.getInt();
+        int availableSeats = record.getInt();
+        long incarnation = record.getLong();
+        long version = record.getLong();
+        if (availableSeats < 0 || availableSeats > capacity) {
+            throw new IOException("Journal record " + sequence + " gives flight " + flightId + " " + availableSeats
+                    + " available seats out of " + capacity + "; the journal is damaged.");
+        }
+        Flight flight = new Flight(flightId, origin, destination, departureTime, arrivalTime,
+                Fleet.resolveForSeats(airplaneId, airplaneModel, capacity), capacity);
+        flight.setAvailableSeats(availableSeats);
+        return new ReplayedFlight(flight, incarnation, version);
+    }
+
+    // Seat records: flight ID, the flight's incarnation and seat version, and the seats
+    private static byte[] encodeSeats(String flightId, long incarnation, long version, int seats) {
+        byte[] id = flightId.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(4 + id.length + 8 + 8 + 4).putInt(id.length).put(id)
+                .putLong(incarnation).putLong(version).putInt(seats).array();
+    }
+
+    // Strings are a UTF-8 length (-1 for null) followed by the bytes
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
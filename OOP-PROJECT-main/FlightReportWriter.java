@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Output layouts for FlightReportWriter
+enum ReportFormat {
+    TEXT, // The labelled, multi-line layout Manager.generateReport has always printed
+    CSV,
+    FIXED_WIDTH;
+
+    // Pick a format from a file extension: .csv, .fw for fixed width, anything else (.txt
+    // included) TEXT. Callers that need a particular layout should name it instead.
+    static ReportFormat detect(String filename) {
+        String lower = filename.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".csv")) {
+            return CSV;
+        }
+        if (lower.endsWith(".fw")) {
+            return FIXED_WIDTH;
+        }
+        return TEXT;
+    }
+}
+
+// Streams the flight report to a Writer or file.
+//
+// Rows are appended field by field to a StringBuilder that is reused across rows and
+// handed to the Writer whenever it passes BUFFER_SIZE characters, so neither Airport
+// nor Flight toString is called and nothing proportional to the schedule is held in
+// memory. writeParallel cuts the flights into PARTITION_SIZE partitions, formats them
+// on a fork-join pool and writes them in schedule order; at most twice the pool's
+// parallelism partitions are formatted ahead of the writer.
+class FlightReportWriter {
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int PARTITION_SIZE = 4096;
+
+    private static final String SEPARATOR = "----------------------------";
+    private static final String[] CSV_HEADER = {"flight_id", "origin", "origin_name", "origin_location",
+            "destination", "destination_name", "destination_location", "departure", "arrival", "airplane_id",
+            "total_seats", "available_seats", "booked_seats"};
+    private static final String[] FIXED_HEADER = {"FLIGHT", "ORIGIN", "DEST", "DEPARTURE", "ARRIVAL", "AIRPLANE",
+            "TOTAL", "AVAIL", "BOOKED"};
+    // Column widths for FIXED_WIDTH; longer values are cut to fit
+    private static final int[] FIXED_WIDTHS = {10, 6, 6, 17, 17, 10, 6, 6, 6};
+
+    private final ReportFormat format;
+
+    public FlightReportWriter(ReportFormat format) {
+        this.format = format;
+    }
+
+    // Write the report on the calling thread
+    public void write(List<Flight> flights, BookingStatistics.Snapshot bookings, Writer out) throws IOException {
+        StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+        header(buffer);
+        for (Flight flight : flights) {
+            row(buffer, flight, bookings);
+            if (buffer.length() >= BUFFER_SIZE) {
+                out.append(buffer);
+                buffer.setLength(0);
+            }
+        }
+        footer(buffer, bookings);
+        out.append(buffer);
+        out.flush();
+    }
+
+    // Format partitions of the report in parallel and write them in order
+    public void writeParallel(List<Flight> flights, BookingStatistics.Snapshot bookings, Writer out, ForkJoinPool pool)
+            throws IOException {
+        StringBuilder buffer = new StringBuilder(1024);
+        header(buffer);
+        out.append(buffer);
+
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<ForkJoinTask<StringBuilder>> inFlight = new ArrayDeque<>();
+        for (int from = 0; from < flights.size(); from += PARTITION_SIZE) {
+            List<Flight> partition = flights.subList(from, Math.min(flights.size(), from + PARTITION_SIZE));
+            inFlight.addLast(pool.submit(() -> formatPartition(partition, bookings)));
+            if (inFlight.size() >= window) {
+                out.append(join(inFlight.pollFirst()));
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            out.append(join(inFlight.pollFirst()));
+        }
+
+        buffer.setLength(0);
+        footer(buffer, bookings);
+        out.append(buffer);
+        out.flush();
+    }
+
+    // Write the report to a file (replacing it), formatting in parallel on the common pool
+    public void writeToFile(List<Flight> flights, BookingStatistics.Snapshot bookings, String filename)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            writeParallel(flights, bookings, out, ForkJoinPool.commonPool());
+        }
+    }
+
+    private StringBuilder formatPartition(List<Flight> partition, BookingStatistics.Snapshot bookings) {
+        StringBuilder buffer = new StringBuilder(partition.size() * 160);
+        for (Flight flight : partition) {
+            row(buffer, flight, bookings);
+        }
+        return buffer;
+    }
+
+    private static StringBuilder join(ForkJoinTask<StringBuilder> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while formatting the report.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error formatting the report: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void header(StringBuilder buffer) {
+        switch (format) {
+            case CSV:
+                for (int i = 0; i < CSV_HEADER.length; i++) {
+                    buffer.append(i == 0 ? "" : ",").append(CSV_HEADER[i]);
+                }
+                buffer.append('\n');
+                break;
+            case FIXED_WIDTH:
+                for (int i = 0; i < FIXED_HEADER.length; i++) {
+                    column(buffer, FIXED_HEADER[i], i);
+                }
+                buffer.append('\n');
+                break;
+            default:
+                buffer.append("Flight Reports:\n");
+        }
+    }
+
+    // Seat figures all come from the snapshot, so a row never mixes two points in time
+    private void row(StringBuilder buffer, Flight flight, BookingStatistics.Snapshot bookings) {
+        Airport origin = flight.getOrigin();
+        Airport destination = flight.getDestination();
+        long booked = bookings.getBookedSeats(flight);
+        long available = bookings.getAvailableSeats(flight);
+        int total = bookings.getTotalSeats(flight);
+        switch (format) {
+            case CSV:
+                csv(buffer, flight.getFlightId()).append(',');
+                csv(buffer, origin.getAirportCode()).append(',');
+                csv(buffer, origin.getName()).append(',');
+                csv(buffer, origin.getLocation()).append(',');
+                csv(buffer, destination.getAirportCode()).append(',');
+                csv(buffer, destination.getName()).append(',');
+                csv(buffer, destination.getLocation()).append(',');
+                csv(buffer, flight.getDepartureTime()).append(',');
+                csv(buffer, flight.getArrivalTime()).append(',');
+                csv(buffer, flight.getAirplane().getAirplaneId()).append(',');
+                buffer.append(total).append(',')
+                        .append(available).append(',')
+                        .append(booked).append('\n');
+                break;
+            case FIXED_WIDTH:
+                column(buffer, flight.getFlightId(), 0);
+                column(buffer, origin.getAirportCode(), 1);
+                column(buffer, destination.getAirportCode(), 2);
+                column(buffer, flight.getDepartureTime(), 3);
+                column(buffer, flight.getArrivalTime(), 4);
+                column(buffer, flight.getAirplane().getAirplaneId(), 5);
+                column(buffer, Integer.toString(total), 6);
+                column(buffer, Long.toString(available), 7);
+                column(buffer, Long.toString(booked), 8);
+                buffer.append('\n');
+                break;
+            default:
+                buffer.append("Flight ID: ").append(flight.getFlightId()).append('\n');
+                airport(buffer.append("Origin: "), origin).append('\n');
+                airport(buffer.append("Destination: "), destination).append('\n');
+                buffer.append("Departure: ").append(flight.getDepartureTime()).append('\n')
+                        .append("Arrival: ").append(flight.getArrivalTime()).append('\n')
+                        .append("Available Seats: ").append(available).append('\n')
+                        .append("Booked Seats: ").append(booked).append('\n')
+                        .append(SEPARATOR).append('\n');
+        }
+    }
+
+    // Totals go after the rows; CSV output stays a plain table
+    private void footer(StringBuilder buffer, BookingStatistics.Snapshot bookings) {
+        if (format == ReportFormat.CSV) {
+            return;
+        }
+        buffer.append("Total Booked Seats: ").append(bookings.getTotalBookedSeats()).append('\n');
+        if (format == ReportFormat.TEXT) {
+            groups(buffer, "Booked Seats by Route:", bookings.getBookedSeatsByRoute());
+            groups(buffer, "Booked Seats by Origin:", bookings.getBookedSeatsByOrigin());
+            groups(buffer, "Booked Seats by Departure Day:", bookings.getBookedSeatsByDay());
+        }
+    }
+
+    private static void groups(StringBuilder buffer, String title, Map<String, Long> groups) {
+        buffer.append(title).append('\n');
+        if (groups.isEmpty()) {
+            buffer.append("  (none)\n");
+        }
+        for (Map.Entry<String, Long> group : groups.entrySet()) {
+            buffer.append("  ").append(group.getKey()).append(": ").append(group.getValue()).append('\n');
+        }
+    }
+
+    // Same text as Airport.toString, without building an intermediate string
+    private static StringBuilder airport(StringBuilder buffer, Airport airport) {
+        return buffer.append("Airport Code: ").append(airport.getAirportCode())
+                .append(", Name: ").append(airport.getName())
+                .append(", Location: ").append(airport.getLocation());
+    }
+
+    // Quote a CSV field only when it contains a comma, quote or line break
+    private static StringBuilder csv(StringBuilder buffer, String value) {
+        if (value == null) {
+            return buffer;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return buffer.append(value);
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        return buffer.append('"');
+    }
+
+    // Left-aligned, padded to the column width plus one space, cut if too long
+    private static void column(StringBuilder buffer, String value, int index) {
+        int width = FIXED_WIDTHS[index];
+        String text = value == null ? "" : value;
+        int length = Math.min(text.length(), width);
+        buffer.append(text, 0, length);
+        for (int i = length; i <= width; i++) {
+            buffer.append(' ');
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-flight FIFO waitlists for customers who found a flight full.
+//
+// Each flight ID has a lock-free queue of entries. An entry moves from WAITING to
+// PROMOTED or WITHDRAWN exactly once, by compare-and-set, which is what keeps a
+// customer from being promoted twice. promote runs whenever seats come back
+// (Flight.release) and right after someone joins: it reserves seats for the entry at
+// the head of the queue and then tries to claim that entry. Two threads promoting at
+// once may both reserve for the same head; the one that loses the claim hands its
+// seats straight back and moves on to the next entry, so seats are never lost.
+// The head is never skipped for a later, smaller request.
+//
+// Joining happens under the waitlist's monitor, the way PassengerManifest records
+// bookings: a waitlist is closed there when its flight is cancelled or nobody is left
+// waiting, and taken out of the map, so nothing is ever added to a waitlist that has
+// left it. A customer waits at most once per flight.
+class FlightWaitlist {
+    // join results other than a position
+    static final int NOT_SCHEDULED = 0;
+    static final int ALREADY_WAITING = -1;
+
+    private static final int WAITING = 0;
+    private static final int PROMOTED = 1;
+    private static final int WITHDRAWN = 2;
+
+    private static final ConcurrentHashMap<String, Waitlist> waitlists = new ConcurrentHashMap<>();
+
+    // Put a customer on a flight's waitlist; returns their position in the queue,
+    // ALREADY_WAITING if they are on it already, or NOT_SCHEDULED if the flight has left
+    // the schedule
+    static int join(Flight flight, Customer customer, int seats) {
+        if (seats <= 0 || seats > flight.getTotalSeats()) {
+            throw new IllegalArgumentException("Cannot wait for " + seats + " seats on flight " + flight.getFlightId() + ".");
+        }
+        String key = key(flight.getFlightId());
+        int position;
+        while (true) {
+            Waitlist waitlist = waitlists.computeIfAbsent(key, k -> new Waitlist());
+            synchronized (waitlist) {
+                if (!waitlist.closed) {
+                    if (FlightSchedule.findFlightById(flight.getFlightId()) == null) {
+                        retireIfIdle(key, waitlist); // Made for a flight that was cancelled meanwhile
+                        return NOT_SCHEDULED;
+                    }
+                    if (!waitlist.customers.add(customer)) {
+                        return ALREADY_WAITING;
+                    }
+                    position = waitlist.waiting.incrementAndGet();
+                    waitlist.entries.add(new Entry(customer, seats));
+                    break;
+                }
+            }
+            // Closed after we looked it up; make sure it is gone and start a fresh one
+            waitlists.remove(key, waitlist);
+        }
+        // Seats may have come back between the failed booking and joining
+        Flight scheduled = FlightSchedule.findFlightById(flight.getFlightId());
+        if (scheduled != null) {
+            promote(scheduled);
+        }
+        return position;
+    }
+
+    // Take a customer off a flight's waitlist; false if they were not waiting
+    static boolean withdraw(String flightId, Customer customer) {
+        String key = key(flightId);
+        Waitlist waitlist = waitlists.get(key);
+        if (waitlist == null) {
+            return false;
+        }
+        for (Entry entry : waitlist.entries) {
+            if (entry.customer == customer && entry.state.compareAndSet(WAITING, WITHDRAWN)) {
+                left(waitlist, entry);
+                retireIfIdle(key, waitlist);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Hand free seats to waiting customers in order until the head no longer fits
+    static void promote(Flight flight) {
+        String key = key(flight.getFlightId());
+        Waitlist waitlist = waitlists.get(key);
+        if (waitlist == null) {
+            return;
+        }
+        Flight scheduled = FlightSchedule.findFlightById(flight.getFlightId());
+        if (scheduled == null) {
+            flightCancelled(flight); // Left the schedule without a cancellation, e.g. a reload
+            return;
+        }
+        // Seats coming back on a replaced Flight object are not the schedule's to hand out
+        if (scheduled != flight) {
+            return;
+        }
+        while (true) {
+            Entry head = waitlist.entries.peek();
+            if (head == null) {
+                retireIfIdle(key, waitlist);
+                return;
+            }
+            if (head.state.get() != WAITING) {
+                waitlist.entries.remove(head); // Already promoted or withdrawn by another thread
+                continue;
+            }
+            if (head.seats > flight.getTotalSeats()) {
+                // The flight was changed to a smaller airplane; this request can never fit
+                if (head.state.compareAndSet(WAITING, WITHDRAWN)) {
+                    left(waitlist, head);
+                    head.customer.postNotification(() -> "Flight " + flight.getFlightId() + " now has only "
+                            + flight.getTotalSeats() + " seats, so your waitlisted request for " + head.seats
+                            + " seats was removed.");
+                }
+                continue;
+            }
+            if (!flight.tryReserve(head.seats)) {
+                return; // Not enough seats for the head yet
+            }
+            if (!head.state.compareAndSet(WAITING, PROMOTED)) {
+                // Someone else claimed or withdrew this entry first
+                flight.release(head.seats, false);
+                continue;
+            }
+            left(waitlist, head);
+            if (!head.customer.waitlistPromoted(flight, head.seats)) {
+                // Cancelled or replaced after the check above; the entry is already gone
+                flight.release(head.seats, false);
+                head.customer.postNotification(() -> "Flight " + flight.getFlightId()
+                        + " was cancelled or changed before your waitlisted booking could be confirmed. You have"
+                        + " been removed from its waitlist.");
+            }
+        }
+    }
+
+    // The flight was cancelled: drop its waitlist and let everyone on it know
+    static void flightCancelled(Flight flight) {
+        Waitlist waitlist = waitlists.remove(key(flight.getFlightId()));
+        if (waitlist == null) {
+            return;
+        }
+        synchronized (waitlist) {
+            waitlist.closed = true; // No join can add to it from here on
+        }
+        Entry entry;
+        while ((entry = waitlist.entries.poll()) != null) {
+            if (entry.state.compareAndSet(WAITING, WITHDRAWN)) {
+                waitlist.waiting.decrementAndGet();
+                entry.customer.postNotification(() -> "Flight " + flight.getFlightId()
+                        + " has been cancelled. You have been removed from its waitlist.");
+            }
+        }
+    }
+
+    // Called once for an entry, by the thread that moved it out of WAITING
+    private static void left(Waitlist waitlist, Entry entry) {
+        waitlist.waiting.decrementAndGet();
+        waitlist.entries.remove(entry);
+        synchronized (waitlist) {
+            waitlist.customers.remove(entry.customer);
+        }
+    }
+
+    // Close and drop a waitlist nobody is waiting on, so the map only holds flights with
+    // a queue; a later join starts a new one
+    private static void retireIfIdle(String key, Waitlist waitlist) {
+        synchronized (waitlist) {
+            if (!waitlist.closed && waitlist.waiting.get() == 0) {
+                waitlist.closed = true;
+                waitlists.remove(key, waitlist);
+            }
+        }
+    }
+
+    // Customers still waiting for a flight
+    public static int getWaitingCount(String flightId) {
+        Waitlist waitlist = flightId == null ? null : waitlists.get(key(flightId));
+        return waitlist == null ? 0 : waitlist.waiting.get();
+    }
+
+    private static String key(String flightId) {
+        return flightId.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Waitlist {
+        final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+        // Entries still WAITING; the queue itself can briefly hold finished ones
+        final AtomicInteger waiting = new AtomicInteger();
+        // Customers with a WAITING entry, matched by identity; guarded by the waitlist's monitor
+        final Set<Customer> customers = Collections.newSetFromMap(new IdentityHashMap<>());
+        // Out of the map for good; guarded by the waitlist's monitor
+        boolean closed;
+    }
+
+    private static final class Entry {
+        final Customer customer;
+        final int seats;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Entry(Customer customer, int seats) {
+            this.customer = customer;
+            this.seats = seats;
+        }
+    }
+}
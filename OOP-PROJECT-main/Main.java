@@ -1,16 +1,38 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Scanner;
 
 public class Main {
+    // Every change is journaled here and folded into the snapshot on exit
+    private static final String JOURNAL_FILE = "flights.journal";
+    private static final String SNAPSHOT_FILE = "flights.snapshot";
+
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
         Manager manager = new Manager("Alice", "alice@airlines.com");
         Customer customer = new Customer("Bob", "bob@domain.com");
 
-        // Load flights from file at startup
-        List<Flight> flights = FileManager.loadFlightsFromFile();
-        FlightSchedule.setFlights(flights);
+        // Load flights at startup: the last snapshot plus the journal, or flights.txt the first time
+        FlightJournal journal = startJournal();
+
+        // "--batch <file|-> [--workers N] [--quiet]" replays a command script instead of the menus
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args, journal);
+            scanner.close();
+            return;
+        }
+
+        // "--http [port]" serves the HTTP/JSON API instead of the menus
+        if (args.length > 0 && args[0].equals("--http")) {
+            serveHttp(args, journal, scanner);
+            return;
+        }
 
         while (true) {
             System.out.println("\n==== Airline Management System ====");
@@ -32,6 +54,7 @@ public class Main {
                 case 3:
                     // Save flights to file before exiting
                     FileManager.saveFlightsToFile(FlightSchedule.getFlights(),"flights.txt");
+                    stopJournal(journal);
                     System.out.println("Exiting the system. Goodbye!");
                     scanner.close();
                     return;
@@ -41,6 +64,122 @@ public class Main {
         }
     }
 
+    // Replay a command script (see BatchRunner); "-" reads it from standard input
+    private static void runBatch(String[] args, FlightJournal journal) {
+        // Everything after startJournal runs under the finally, so the journal is always stopped
+        try {
+            String script = args.length > 1 ? args[1] : "-";
+            int workers = 1;
+            boolean quiet = false;
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("--quiet")) {
+                    quiet = true;
+                } else if (args[i].equals("--workers") && i + 1 < args.length) {
+                    workers = parseWorkers(args[++i]);
+                } else {
+                    System.out.println("Unknown batch option: " + args[i]);
+                }
+            }
+            Reader input;
+            try {
+                input = script.equals("-")
+                        ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                        : new FileReader(script, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.out.println("Error opening command script: " + e.getMessage());
+                return;
+            }
+            try (BufferedReader reader = new BufferedReader(input, 1 << 16)) {
+                new BatchRunner(workers, quiet).run(reader);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error running command script: " + e.getMessage());
+        } finally {
+            stopJournal(journal);
+        }
+    }
+
+    private static int parseWorkers(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--workers needs a number, got \"" + value + "\".");
+        }
+    }
+
+    // Run the HTTP front end until Enter is pressed, then save and shut down like Exit does
+    private static void serveHttp(String[] args, FlightJournal journal, Scanner scanner) {
+        // Everything after startJournal runs under the finally, so the journal is always stopped
+        try {
+            int port = args.length > 1 ? parsePort(args[1]) : FlightHttpServer.DEFAULT_PORT;
+            FlightHttpServer server;
+            try {
+                server = new FlightHttpServer(port);
+            } catch (IOException e) {
+                System.out.println("Error starting HTTP server: " + e.getMessage());
+                return;
+            }
+            server.start();
+            System.out.println("Press Enter to stop.");
+            if (scanner.hasNextLine()) {
+                scanner.nextLine();
+            }
+            server.stop(2);
+            FileManager.saveFlightsToFile(FlightSchedule.getFlights(), "flights.txt");
+            System.out.println("HTTP server stopped. Goodbye!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error starting HTTP server: " + e.getMessage());
+        } finally {
+            stopJournal(journal);
+            scanner.close();
+        }
+    }
+
+    private static int parsePort(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--http needs a port number, got \"" + value + "\".");
+        }
+    }
+
+    // Recover the schedule and start journaling; falls back to the flights file without a journal
+    private static FlightJournal startJournal() {
+        FlightJournal journal = null;
+        try {
+            journal = new FlightJournal(JOURNAL_FILE, SNAPSHOT_FILE);
+            FlightSchedule.setFlights(journal.recover(FileManager::loadFlightsFromFile));
+            FlightSchedule.attachJournal(journal);
+            FlightSchedule.compactJournal();
+            return journal;
+        } catch (IOException e) {
+            System.out.println("Error opening journal, changes will not be journaled: " + e.getMessage());
+            FlightSchedule.attachJournal(null);
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException ignored) {
+                    // Already reporting the original failure
+                }
+            }
+            FlightSchedule.setFlights(FileManager.loadFlightsFromFile());
+            return null;
+        }
+    }
+
+    // Fold the journal into the snapshot and close it
+    private static void stopJournal(FlightJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            FlightSchedule.compactJournal();
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing journal: " + e.getMessage());
+        }
+    }
+
     // Manager Menu
     private static void managerMenu(Manager manager, Scanner scanner) {
         while (true) {
@@ -71,7 +210,7 @@ public class Main {
                         String originName = scanner.nextLine();
                         System.out.print("Enter Origin Location: ");
                         String originLocation = scanner.nextLine();
-                        Airport origin = new Airport(originCode, originName, originLocation);
+                        Airport origin = AirportDirectory.resolve(originCode, originName, originLocation);
 
                         System.out.print("Enter Destination Airport Code: ");
                         String destinationCode = scanner.nextLine();
@@ -79,7 +218,7 @@ public class Main {
                         String destinationName = scanner.nextLine();
                         System.out.print("Enter Destination Location: ");
                         String destinationLocation = scanner.nextLine();
-                        Airport destination = new Airport(destinationCode, destinationName, destinationLocation);
+                        Airport destination = AirportDirectory.resolve(destinationCode, destinationName, destinationLocation);
 
                         System.out.print("Enter Departure Time: ");
                         String departureTime = scanner.nextLine();
@@ -93,9 +232,9 @@ public class Main {
                         System.out.print("Enter Airplane Capacity: ");
                         int capacity = scanner.nextInt();
                         scanner.nextLine(); // Consume newline
-                        Airplane airplane = new Airplane(airplaneId, airplaneModel, capacity);
+                        Airplane airplane = Fleet.resolve(airplaneId, airplaneModel, capacity);
 
-                        Flight newFlight = new Flight(flightId, origin, destination, departureTime, arrivalTime, airplane);
+                        Flight newFlight = new Flight(flightId, origin, destination, departureTime, arrivalTime, airplane, capacity);
                         manager.manageFlight(newFlight, "add");
                         break;
                     case 2:
@@ -108,7 +247,7 @@ public class Main {
                         String newOriginName = scanner.nextLine();
                         System.out.print("Enter New Origin Location: ");
                         String newOriginLocation = scanner.nextLine();
-                        Airport newOrigin = new Airport(newOriginCode, newOriginName, newOriginLocation);
+                        Airport newOrigin = AirportDirectory.resolve(newOriginCode, newOriginName, newOriginLocation);
 
                         System.out.print("Enter New Destination Airport Code: ");
                         String newDestinationCode = scanner.nextLine();
@@ -116,7 +255,7 @@ public class Main {
                         String newDestinationName = scanner.nextLine();
                         System.out.print("Enter New Destination Location: ");
                         String newDestinationLocation = scanner.nextLine();
-                        Airport newDestination = new Airport(newDestinationCode, newDestinationName, newDestinationLocation);
+                        Airport newDestination = AirportDirectory.resolve(newDestinationCode, newDestinationName, newDestinationLocation);
 
                         System.out.print("Enter New Departure Time: ");
                         String newDepartureTime = scanner.nextLine();
@@ -130,21 +269,21 @@ public class Main {
                         System.out.print("Enter New Airplane Capacity: ");
                         int newCapacity = scanner.nextInt();
                         scanner.nextLine(); // Consume newline
-                        Airplane newAirplane = new Airplane(newAirplaneId, newAirplaneModel, newCapacity);
+                        Airplane newAirplane = Fleet.resolve(newAirplaneId, newAirplaneModel, newCapacity);
 
-                        Flight updatedFlight = new Flight(updateId, newOrigin, newDestination, newDepartureTime, newArrivalTime, newAirplane);
+                        Flight updatedFlight = new Flight(updateId, newOrigin, newDestination, newDepartureTime, newArrivalTime, newAirplane, newCapacity);
                         manager.manageFlight(updatedFlight, "update");
                         break;
                     case 3:
                         System.out.print("Enter Flight ID to Cancel: ");
                         String cancelId = scanner.nextLine();
-                        manager.manageFlight(new Flight(cancelId, null, null, null, null, null), "cancel");
+                        manager.cancelFlight(cancelId);
                         break;
                     case 4:
                         FlightSchedule.listFlights();
                         break;
                     case 5:
-                        manager.viewNotifications();
+                        viewNotifications(manager, scanner);
                         break;
                     case 6:
                         manager.clearNotifications();
@@ -199,7 +338,7 @@ public class Main {
                         customer.viewNotifications(); // Booking history could be shown as notifications.
                         break;
                     case 3:
-                        customer.viewNotifications();
+                        viewNotifications(customer, scanner);
                         break;
                     case 4:
                         customer.clearNotifications();
@@ -215,13 +354,23 @@ public class Main {
         }
     }
 
-    // Utility method to find a flight by its ID
-    private static Flight findFlightById(String flightId) {
-        for (Flight flight : FlightSchedule.getFlights()) {
-            if (flight.getFlightId().equalsIgnoreCase(flightId)) {
-                return flight;
+    // Show the newest notifications, then let the user page back through older ones
+    private static void viewNotifications(User user, Scanner scanner) {
+        user.viewNotifications();
+        int pages = (user.getNotificationInbox().size() + NotificationInbox.PAGE_SIZE - 1) / NotificationInbox.PAGE_SIZE;
+        while (pages > 1) {
+            System.out.print("Enter page number (1-" + pages + ") or 0 to return: ");
+            int page = scanner.nextInt();
+            scanner.nextLine(); // Consume newline
+            if (page == 0) {
+                return;
             }
+            user.viewNotifications(page);
         }
-        return null;
     }
-}
\ No newline at end of file
+
+    // Utility method to find a flight by its ID
+    private static Flight findFlightById(String flightId) {
+        return FlightSchedule.findFlightById(flightId);
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Delivers notifications to users off the calling thread.
+//
+// dispatch only queues the message on the recipient's own bounded queue and, if the
+// recipient is not already scheduled, submits one drain task for it. The message is
+// a Supplier, so building the text (Airport.toString and friends) also happens on the
+// background executor. A drain task takes up to batchSize messages and hands them to
+// the user's inbox in one call, then reschedules itself if more are waiting, so a busy
+// recipient cannot starve the others. There is never more than one task per recipient,
+// which keeps each user's notifications in order. A queue is removed from the map once
+// its drain task finds it empty, so the map only holds users with messages in flight.
+//
+// When a recipient's queue is full the overflow policy decides what happens, so the
+// caller never blocks: DROP_NEWEST discards the new message, DROP_OLDEST discards the
+// oldest queued one, and MERGE counts the message and later delivers a single
+// "N more notifications" line in its place.
+class NotificationDispatcher {
+    enum OverflowPolicy { DROP_NEWEST, DROP_OLDEST, MERGE }
+
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+    static final int DEFAULT_BATCH_SIZE = 32;
+
+    private static volatile NotificationDispatcher defaultDispatcher;
+
+    private final ExecutorService executor;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    // Users do not override equals, so recipients are matched by identity. Only recipients
+    // with queued or in-flight messages have an entry.
+    private final Map<User, RecipientQueue> queues = new ConcurrentHashMap<>();
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public NotificationDispatcher() {
+        this(1, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.MERGE);
+    }
+
+    public NotificationDispatcher(int threads, int queueCapacity, int batchSize, OverflowPolicy policy) {
+        if (threads <= 0 || queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Threads, queue capacity and batch size must be positive.");
+        }
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "notification-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Shared dispatcher used by User.postNotification, created on first use
+    static NotificationDispatcher getDefault() {
+        NotificationDispatcher dispatcher = defaultDispatcher;
+        if (dispatcher == null) {
+            synchronized (NotificationDispatcher.class) {
+                dispatcher = defaultDispatcher;
+                if (dispatcher == null) {
+                    dispatcher = new NotificationDispatcher();
+                    defaultDispatcher = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    // Queue a notification for recipient; never blocks
+    public void dispatch(User recipient, Supplier<String> message) {
+        RecipientQueue queue;
+        boolean schedule;
+        while (true) {
+            queue = queues.computeIfAbsent(recipient, RecipientQueue::new);
+            synchronized (queue) {
+                if (!queue.retired) {
+                    schedule = enqueue(queue, message);
+                    break;
+                }
+            }
+            // Drained and retired after we looked it up; make sure it is gone and start a fresh one
+            queues.remove(recipient, queue);
+        }
+        if (schedule) {
+            submit(queue);
+        }
+    }
+
+    // Add a message under the queue's lock; returns true if a drain task must be submitted
+    private boolean enqueue(RecipientQueue queue, Supplier<String> message) {
+        if (queue.pending.size() < queueCapacity) {
+            queue.pending.addLast(message);
+        } else {
+            switch (policy) {
+                case DROP_OLDEST:
+                    queue.pending.pollFirst();
+                    queue.pending.addLast(message);
+                    dropped.incrementAndGet();
+                    break;
+                case MERGE:
+                    queue.merged++;
+                    merged.incrementAndGet();
+                    break;
+                default:
+                    dropped.incrementAndGet();
+            }
+        }
+        boolean schedule = !queue.scheduled;
+        queue.scheduled = true;
+        return schedule;
+    }
+
+    // Wait until everything queued for recipient so far has reached its inbox
+    public void awaitDelivery(User recipient, long timeoutMillis) {
+        RecipientQueue queue = queues.get(recipient);
+        if (queue == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (queue) {
+            long remaining;
+            while (queue.scheduled && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    queue.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Deliver what is queued, then stop the background threads
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getMergedCount() {
+        return merged.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    private void submit(RecipientQueue queue) {
+        try {
+            executor.execute(() -> drain(queue));
+        } catch (RejectedExecutionException e) {
+            // Shut down: deliver on the caller's thread rather than lose the messages
+            drain(queue);
+        }
+    }
+
+    // Deliver one batch for a recipient and reschedule if more messages are waiting
+    private void drain(RecipientQueue queue) {
+        List<Supplier<String>> batch = new ArrayList<>(batchSize);
+        int mergedCount = 0;
+        synchronized (queue) {
+            while (batch.size() < batchSize && !queue.pending.isEmpty()) {
+                batch.add(queue.pending.pollFirst());
+            }
+            if (queue.pending.isEmpty()) {
+                mergedCount = queue.merged;
+                queue.merged = 0;
+            }
+        }
+
+        List<String> messages = new ArrayList<>(batch.size() + 1);
+        for (Supplier<String> message : batch) {
+            try {
+                messages.add(message.get());
+            } catch (RuntimeException e) {
+                System.out.println("Error building notification: " + e.getMessage());
+            }
+        }
+        if (mergedCount > 0) {
+            messages.add(mergedCount + (mergedCount == 1 ? " more notification was" : " more notifications were")
+                    + " merged while the inbox was busy.");
+        }
+        if (!messages.isEmpty()) {
+            queue.recipient.deliverNotifications(messages);
+            delivered.addAndGet(messages.size());
+            batches.incrementAndGet();
+        }
+
+        boolean again;
+        synchronized (queue) {
+            again = !queue.pending.isEmpty() || queue.merged > 0;
+            if (!again) {
+                // Retired under the lock, so dispatch never adds to a queue that has left the map
+                queue.scheduled = false;
+                queue.retired = true;
+                queue.notifyAll();
+            }
+        }
+        if (again) {
+            submit(queue);
+        } else {
+            queues.remove(queue.recipient, queue);
+        }
+    }
+
+    // Messages waiting for one user; guarded by itself
+    private static final class RecipientQueue {
+        final User recipient;
+        final ArrayDeque<Supplier<String>> pending = new ArrayDeque<>();
+        int merged;
+        boolean scheduled;
+        // Drained and removed from queues; dispatch must not use it any more
+        boolean retired;
+
+        RecipientQueue(User recipient) {
+            this.recipient = recipient;
+        }
+    }
+}
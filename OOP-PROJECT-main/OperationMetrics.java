@@ -0,0 +1,291 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Latency and throughput of the schedule, booking and file operations.
+//
+// Each operation has an OperationStats: call counters plus a latency histogram. Callers
+// take System.nanoTime() before the work and hand it to record afterwards. Recording
+// is one increment of a histogram bucket and one LongAdder add, with no locks, so it
+// costs a few tens of nanoseconds including the clock reads.
+//
+// Every OperationStats is registered with the platform MBean server as
+// "AirplaneManagementSystem:type=Operation,name=<name>" when this class is first used,
+// so jconsole or any JMX scraper can read counts, rates and p50/p99/p999 latencies from
+// a running process.
+class OperationMetrics {
+    static final String DOMAIN = "AirplaneManagementSystem";
+
+    private static final List<OperationStats> all = new ArrayList<>();
+
+    static final OperationStats FLIGHT_ADD = register("schedule.add");
+    static final OperationStats FLIGHT_UPDATE = register("schedule.update");
+    static final OperationStats FLIGHT_CANCEL = register("schedule.cancel");
+    static final OperationStats FLIGHT_LOOKUP = register("schedule.lookup");
+    static final OperationStats FLIGHT_SEARCH = register("schedule.search");
+    static final OperationStats BOOKING = register("booking.book");
+    static final OperationStats BOOKING_CANCEL = register("booking.cancel");
+    static final OperationStats FILE_LOAD = register("file.load");
+    static final OperationStats FILE_SAVE = register("file.save");
+
+    static {
+        registerMBeans();
+    }
+
+    private static OperationStats register(String name) {
+        OperationStats stats = new OperationStats(name);
+        all.add(stats);
+        return stats;
+    }
+
+    static List<OperationStats> getAll() {
+        return Collections.unmodifiableList(all);
+    }
+
+    // Register every operation with the platform MBean server; a failure only costs visibility
+    private static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationStats stats : all) {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + stats.getName());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(stats, name);
+                }
+            } catch (JMException e) {
+                System.out.println("Error registering metrics for " + stats.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // One line per operation that has been called
+    static void printSummary() {
+        for (OperationStats stats : all) {
+            if (stats.getCount() > 0) {
+                System.out.println(stats);
+            }
+        }
+    }
+}
+
+// Counters and latency histogram of one operation
+class OperationStats implements OperationStatsMBean {
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private volatile long since = System.nanoTime();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    // Record one call that started at startNanos (a System.nanoTime() value)
+    void record(long startNanos, boolean succeeded) {
+        latencies.record(System.nanoTime() - startNanos);
+        if (!succeeded) {
+            failures.increment();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    // Calls per second since start-up or the last reset
+    @Override
+    public double getRatePerSecond() {
+        long elapsed = System.nanoTime() - since;
+        return elapsed <= 0 ? 0 : getCount() * 1e9 / elapsed;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.getPercentile(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.getMax() / 1e3;
+    }
+
+    // Calls recorded while resetting may be kept or dropped
+    @Override
+    public void reset() {
+        latencies.reset();
+        failures.reset();
+        since = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s: %d calls (%d failed), %.0f/s, mean %.3f us, p50 %.3f us, p99 %.3f us, p999 %.3f us, max %.3f us",
+                name, getCount(), getFailureCount(), getRatePerSecond(), getMeanMicros(), getP50Micros(),
+                getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
+
+// Lock-free log-linear histogram of nanosecond values.
+//
+// Values below 16 get a bucket each; above that every power of two is split into 16
+// equal buckets, so a reported percentile is within about 6% of the true value across
+// the whole long range. Recording is a single atomic increment of one bucket plus a
+// LongAdder for the sum; the maximum is only written when it grows.
+//
+// Like LongAdder, the bucket counts are striped: each thread increments the buckets of
+// the stripe its identity hash picks, so threads timing the same operation do not all
+// contend on one cache line. Stripes are allocated on first use and summed on read.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    // A power of two, at least the number of processors (up to 64)
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // nanoTime is monotonic, but be safe about callers' arithmetic
+        }
+        stripe().incrementAndGet(bucket(nanos));
+        sum.add(nanos);
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    // The calling thread's stripe
+    private AtomicLongArray stripe() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        int index = (hash ^ (hash >>> 16)) & (STRIPES - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    // Bucket counts summed over all stripes
+    private long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += stripe.get(i);
+                }
+            }
+        }
+        return counts;
+    }
+
+    long getCount() {
+        long count = 0;
+        for (long bucketCount : snapshot()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    // Value at the given quantile (0..1): the upper end of the bucket holding it, capped at the maximum
+    long getPercentile(double quantile) {
+        long[] snapshot = snapshot();
+        long count = 0;
+        for (long bucketCount : snapshot) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    stripe.set(i, 0);
+                }
+            }
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Largest value that falls into a bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
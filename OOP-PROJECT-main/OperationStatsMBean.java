@@ -0,0 +1,23 @@
+// Management interface of OperationStats; latencies are in microseconds.
+// JMX only accepts public MBean interfaces, hence its own file.
+public interface OperationStatsMBean {
+    String getName();
+
+    long getCount();
+
+    long getFailureCount();
+
+    double getRatePerSecond();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Loads the tab-separated flights file by memory-mapping it, cutting it into
+// newline-aligned chunks and parsing the chunks in parallel on a fork-join pool.
+// Chunk results are concatenated in file order, so the flights come back in the
+// same order as with FileManager.loadFlightsFromFile. Lines end with '\n'; a '\r'
+// before it is trimmed like any other trailing whitespace. The file is read as UTF-8.
+class ParallelFlightLoader {
+    // Chunks smaller than this are not worth a separate task
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    // Keeps every mapped chunk well below the 2 GB limit of a single mapping
+    private static final long MAX_CHUNK_SIZE = 1L << 28;
+    // Small reads used while looking for the header and chunk boundaries
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final String filename;
+    private final ForkJoinPool pool;
+
+    public ParallelFlightLoader(String filename) {
+        this(filename, ForkJoinPool.commonPool());
+    }
+
+    public ParallelFlightLoader(String filename, ForkJoinPool pool) {
+        this.filename = filename;
+        this.pool = pool;
+    }
+
+    // Parse the whole file; counts and invalid lines are added to the report
+    public List<Flight> load(LoadReport report) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // The first non-blank line is the header; data starts on the line after it
+            long[] header = findHeaderEnd(channel, size);
+            long dataStart = header[0];
+            int headerLines = (int) header[1];
+            if (dataStart >= size) {
+                report.finish(System.nanoTime() - start);
+                return new ArrayList<>();
+            }
+
+            long[] boundaries = splitIntoChunks(channel, dataStart, size);
+            ChunkResult result;
+            try {
+                result = pool.invoke(new ChunkTask(channel, boundaries, 0, boundaries.length - 1));
+            } catch (UncheckedIOException e) {
+                // Same contract as the sequential loader: a failed read is an IOException
+                throw ioCause(e);
+            }
+            report.add(result.report, headerLines);
+            report.finish(System.nanoTime() - start);
+            return result.flights;
+        }
+    }
+
+    // The fork-join pool may rethrow a copy of a worker's exception with the original as
+    // its cause, so look through the chain for the IOException a worker wrapped
+    private static IOException ioCause(UncheckedIOException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return (IOException) cause;
+            }
+        }
+        return e.getCause();
+    }
+
+    // Returns {offset just past the header line, number of lines up to and including it}
+    private static long[] findHeaderEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = 0;
+        long lines = 0;
+        boolean nonBlank = false;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                int b = buffer.get(i) & 0xff;
+                if (b == '\n') {
+                    lines++;
+                    if (nonBlank) {
+                        return new long[] {position + i + 1, lines};
+                    }
+                } else if (b > ' ') {
+                    nonBlank = true;
+                }
+            }
+            position += read;
+        }
+        // Header without a trailing newline, or no header at all: nothing left to parse
+        return new long[] {size, lines};
+    }
+
+    // Chunk start offsets plus the end of file; every offset except the first
+    // and last sits just after a newline
+    private long[] splitIntoChunks(FileChannel channel, long dataStart, long size) throws IOException {
+        long dataSize = size - dataStart;
+        int targetChunks = pool.getParallelism() * 4;
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, (dataSize + targetChunks - 1) / targetChunks));
+
+        List<Long> offsets = new ArrayList<>();
+        offsets.add(dataStart);
+        long previous = dataStart;
+        while (previous + chunkSize < size) {
+            long boundary = nextLineStart(channel, previous + chunkSize, size);
+            if (boundary >= size) {
+                break;
+            }
+            offsets.add(boundary);
+            previous = boundary;
+        }
+        offsets.add(size);
+
+        long[] boundaries = new long[offsets.size()];
+        for (int i = 0; i < boundaries.length; i++) {
+            boundaries[i] = offsets.get(i);
+        }
+        return boundaries;
+    }
+
+    // Offset of the first byte after the next newline at or after position
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Flights and report for a contiguous run of lines
+    private static final class ChunkResult {
+        final List<Flight> flights;
+        final LoadReport report;
+        final int lineCount;
+
+        ChunkResult(List<Flight> flights, LoadReport report, int lineCount) {
+            this.flights = flights;
+            this.report = report;
+            this.lineCount = lineCount;
+        }
+
+        // Append a result that covers the lines right after this one
+        ChunkResult append(ChunkResult next) {
+            flights.addAll(next.flights);
+            report.add(next.report, lineCount);
+            return new ChunkResult(flights, report, lineCount + next.lineCount);
+        }
+    }
+
+    // Parses chunks [from, to) by splitting the range in half until one chunk is left
+    private static final class ChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel; // Tasks are never serialized
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, long[] boundaries, int from, int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (to - from == 1) {
+                try {
+                    return parseChunk(boundaries[from], boundaries[to]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error mapping flights file: " + e.getMessage(), e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, boundaries, from, middle);
+            ChunkTask right = new ChunkTask(channel, boundaries, middle, to);
+            left.fork();
+            ChunkResult rightResult = right.compute();
+            return left.join().append(rightResult);
+        }
+
+        private ChunkResult parseChunk(long start, long end) throws IOException {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            LoadReport report = new LoadReport();
+            FlightLineParser parser = new FlightLineParser(report);
+            List<Flight> flights = new ArrayList<>();
+            byte[] line = new byte[256];
+            int length = 0;
+            int lineNumber = 0;
+            int limit = mapped.limit();
+
+            for (int i = 0; i < limit; i++) {
+                byte b = mapped.get(i);
+                if (b == '\n') {
+                    lineNumber++;
+                    Flight flight = parser.parse(new String(line, 0, length, StandardCharsets.UTF_8), lineNumber);
+                    if (flight != null) {
+                        flights.add(flight);
+                    }
+                    length = 0;
+                } else {
+                    if (length == line.length) {
+                        byte[] grown = new byte[line.length * 2];
+                        System.arraycopy(line, 0, grown, 0, length);
+                        line = grown;
+                    }
+                    line[length++] = b;
+                }
+            }
+            // Last line of the file without a trailing newline
+            if (length > 0) {
+                lineNumber++;
+                Flight flight = parser.parse(new String(line, 0, length, StandardCharsets.UTF_8), lineNumber);
+                if (flight != null) {
+                    flights.add(flight);
+                }
+            }
+            return new ChunkResult(flights, report, lineNumber);
+        }
+    }
+}
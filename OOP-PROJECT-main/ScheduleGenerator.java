@@ -0,0 +1,450 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic schedules and traffic for scale testing.
+//
+// Usage:
+//   java ScheduleGenerator schedule <flights> <output file|-> [options]
+//   java ScheduleGenerator traffic <flights> <commands> <output file|-> [options]
+// Options: --seed N (default 1), --airports N (default 300), --days N (default 7),
+//          --skew S (hot-flight skew for traffic, default 1.1)
+//
+// "schedule" writes flights in the flights.txt (FileManager TSV) format; "traffic"
+// writes a BatchRunner script of book and search commands against the schedule
+// generated with the same flight count, seed, airport count and days.
+//
+// The model, all of it derived from the seed:
+//   - Airport popularity follows a Zipf distribution; the most popular twentieth of the
+//     airports are hubs. Airports get positions on a 5000 km square map.
+//   - Origins are drawn by popularity. Hubs fly anywhere; most flights from other
+//     airports go to a hub (hub-and-spoke), the rest anywhere by popularity.
+//   - The aircraft type follows the distance (regional, narrow-body, wide-body), and so
+//     does the block time. Each type has its own pool of tail numbers.
+//   - Departures cluster in morning, midday and evening banks, on 5-minute marks.
+//   - Bookings pick flights by a Zipf distribution over a fixed shuffle of the flight
+//     numbers, so a few flights are very hot; searches follow the route model.
+//
+// Output is streamed row by row. The Zipf sampler works by rejection-inversion and needs
+// no table, so memory use depends on the airport count only, never on the row count.
+class ScheduleGenerator {
+    static final int DEFAULT_AIRPORTS = 300;
+    static final int DEFAULT_DAYS = 7;
+    static final double DEFAULT_SKEW = 1.1;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 6, 3);
+    private static final double AIRPORT_SKEW = 1.0;
+    private static final double SPOKE_TO_HUB = 0.8;
+    private static final double MAP_KM = 5000;
+    private static final double CRUISE_KM_PER_MINUTE = 13; // About 800 km/h
+    private static final double BOOK_SHARE = 0.75;
+    private static final int CUSTOMERS_PER_FLIGHT = 20;
+    private static final String[] CARRIERS = {"AA", "BA", "CX", "DL", "EK", "IB", "JL", "KL", "LH", "QF",
+            "SQ", "TK", "UA", "VS", "AF", "AC", "NH", "QR", "EY", "LX"};
+    // Departures per hour of the day, relative: banks around 07:00, 12:00 and 18:00
+    private static final int[] HOUR_WEIGHTS = {1, 0, 0, 0, 1, 3, 8, 10, 9, 6, 5, 6,
+            8, 7, 5, 5, 7, 9, 10, 8, 6, 4, 3, 2};
+    private static final Aircraft[] AIRCRAFT = {
+            new Aircraft("E175", 76, 0, 8), new Aircraft("CRJ900", 76, 0, 6),
+            new Aircraft("A320", 180, 1, 10), new Aircraft("B737-800", 189, 1, 10), new Aircraft("A321", 220, 1, 6),
+            new Aircraft("B787-9", 290, 2, 4), new Aircraft("A350-900", 325, 2, 3), new Aircraft("B777-300ER", 396, 2, 3)};
+    private static final double REGIONAL_KM = 900;
+    private static final double WIDE_BODY_KM = 3500;
+
+    private final long seed;
+    private final int flightCount;
+    private final int days;
+    private final int hubs;
+    private final String[] codes;
+    private final String[] names;
+    private final String[] locations;
+    private final double[] x;
+    private final double[] y;
+    private final int tailsPerType;
+    // Every date a departure or arrival can fall on, formatted once
+    private final String[] dates;
+    private final int hourTotal;
+
+    public ScheduleGenerator(long seed, int flightCount, int airports, int days) {
+        if (flightCount < 0 || airports < 2 || airports > 26 * 26 * 26 || days < 1) {
+            throw new IllegalArgumentException("Need a non-negative flight count, 2 to 17576 airports and at least one day.");
+        }
+        this.seed = seed;
+        this.flightCount = flightCount;
+        this.days = days;
+        this.hubs = Math.max(1, airports / 20);
+        this.codes = new String[airports];
+        this.names = new String[airports];
+        this.locations = new String[airports];
+        this.x = new double[airports];
+        this.y = new double[airports];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < airports; i++) {
+            codes[i] = code(i);
+            names[i] = (i < hubs ? "Hub " : "Airport ") + codes[i];
+            locations[i] = "City " + codes[i];
+            x[i] = random.nextDouble() * MAP_KM;
+            y[i] = random.nextDouble() * MAP_KM;
+        }
+        // Enough airframes that each flies a few legs a day
+        this.tailsPerType = Math.max(1, flightCount / days / 4 / AIRCRAFT.length);
+        // The longest flight is well under a day, so arrivals end at most one day later
+        this.dates = new String[days + 1];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = FIRST_DAY.plusDays(i).toString();
+        }
+        int total = 0;
+        for (int weight : HOUR_WEIGHTS) {
+            total += weight;
+        }
+        this.hourTotal = total;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            printUsage();
+            return;
+        }
+        boolean traffic = args[0].equalsIgnoreCase("traffic");
+        if (!traffic && !args[0].equalsIgnoreCase("schedule")) {
+            System.out.println("Invalid mode. Use 'schedule' or 'traffic'.");
+            return;
+        }
+        int optionStart = traffic ? 4 : 3;
+        if (args.length < optionStart) {
+            System.out.println("Missing arguments for " + args[0] + ".");
+            return;
+        }
+        long seed = 1;
+        int airports = DEFAULT_AIRPORTS;
+        int days = DEFAULT_DAYS;
+        double skew = DEFAULT_SKEW;
+        ScheduleGenerator generator;
+        long commands;
+        try {
+            for (int i = optionStart; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException(args[i] + " needs a value.");
+                }
+                switch (args[i]) {
+                    case "--seed":
+                        seed = parseNumber(args[i], args[i + 1]);
+                        break;
+                    case "--airports":
+                        airports = (int) parseNumber(args[i], args[i + 1]);
+                        break;
+                    case "--days":
+                        days = (int) parseNumber(args[i], args[i + 1]);
+                        break;
+                    case "--skew":
+                        skew = parseSkew(args[i + 1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            int flights = (int) parseNumber("<flights>", args[1]);
+            generator = new ScheduleGenerator(seed, flights, airports, days);
+            commands = traffic ? parseNumber("<commands>", args[2]) : 0;
+            if (commands < 0) {
+                throw new IllegalArgumentException("<commands> cannot be negative.");
+            }
+            if (traffic && flights == 0) {
+                throw new IllegalArgumentException("Traffic needs at least one flight.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            printUsage();
+            return;
+        }
+
+        String output = args[optionStart - 1];
+        long start = System.nanoTime();
+        long rows;
+        try (Writer out = open(output)) {
+            rows = traffic ? generator.writeTraffic(out, commands, skew) : generator.writeSchedule(out);
+        } catch (IOException e) {
+            System.err.println("Error writing " + output + ": " + e.getMessage());
+            return;
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        // Progress goes to stderr so "-" can be piped straight into another program
+        System.err.println("Generated " + rows + " " + (traffic ? "commands" : "flights") + " in " + millis
+                + " ms, " + rows * 1000 / millis + " rows/s.");
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java ScheduleGenerator schedule <flights> <output file|-> [options]");
+        System.out.println("       java ScheduleGenerator traffic <flights> <commands> <output file|-> [options]");
+        System.out.println("Options: --seed N, --airports N, --days N, --skew S");
+    }
+
+    // Whole numbers only; an int-sized value for everything but the seed and command count
+    private static long parseNumber(String name, String value) {
+        try {
+            long number = Long.parseLong(value);
+            if (!name.equals("--seed") && !name.equals("<commands>") && number != (int) number) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " needs a whole number, got \"" + value + "\".");
+        }
+    }
+
+    private static double parseSkew(String value) {
+        try {
+            double skew = Double.parseDouble(value);
+            if (!(skew > 0) || Double.isInfinite(skew)) {
+                throw new NumberFormatException();
+            }
+            return skew;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--skew needs a positive number, got \"" + value + "\".");
+        }
+    }
+
+    // "-" writes to System.out, which closing the writer only flushes
+    private static Writer open(String output) throws IOException {
+        OutputStream stream = output.equals("-") ? new UnclosedStream(System.out) : new FileOutputStream(output);
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    // Write the header and every flight; returns the number of flights
+    public long writeSchedule(Writer out) throws IOException {
+        out.write("FID\tOC\tOAirName\tOLocation\tDC\tDAirName\tDLocation\tDTime\tATime\tSeats\tAirplane ID\tAirplane Model\n");
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        ZipfSampler airportSampler = new ZipfSampler(codes.length, AIRPORT_SKEW);
+        ZipfSampler hubSampler = new ZipfSampler(hubs, AIRPORT_SKEW);
+        StringBuilder row = new StringBuilder(160);
+        for (int i = 0; i < flightCount; i++) {
+            int origin = airportSampler.sample(random) - 1;
+            int destination = destination(origin, random, airportSampler, hubSampler);
+            double distance = Math.hypot(x[origin] - x[destination], y[origin] - y[destination]);
+            Aircraft aircraft = aircraft(distance, random);
+            int tail = random.nextInt(tailsPerType);
+            int departure = random.nextInt(days) * 24 * 60 + departureMinute(random);
+            // Taxi, climb and descent plus cruise, rounded to 5 minutes
+            int blockMinutes = (int) Math.round((30 + distance / CRUISE_KM_PER_MINUTE) / 5) * 5;
+
+            row.setLength(0);
+            row.append(flightId(i)).append('\t');
+            airport(row, origin);
+            airport(row, destination);
+            time(row, departure).append('\t');
+            time(row, departure + blockMinutes).append('\t');
+            row.append(aircraft.seats).append('\t')
+                    .append(aircraft.model).append('-').append(tail).append('\t')
+                    .append(aircraft.model).append('\n');
+            out.append(row);
+        }
+        return flightCount;
+    }
+
+    // Write commands booking and searching the schedule; returns the number written
+    public long writeTraffic(Writer out, long commands, double skew) throws IOException {
+        if (flightCount == 0) {
+            throw new IllegalArgumentException("Traffic needs at least one flight.");
+        }
+        SplittableRandom random = new SplittableRandom(seed ^ 0x2545F4914F6CDD1DL);
+        ZipfSampler flightSampler = new ZipfSampler(flightCount, skew);
+        ZipfSampler airportSampler = new ZipfSampler(codes.length, AIRPORT_SKEW);
+        ZipfSampler hubSampler = new ZipfSampler(hubs, AIRPORT_SKEW);
+        long customers = Math.max(1L, (long) flightCount * CUSTOMERS_PER_FLIGHT);
+        long stride = stride(flightCount);
+        StringBuilder row = new StringBuilder(64);
+        out.write("# Traffic for " + flightCount + " flights, seed " + seed + "\n");
+        for (long i = 0; i < commands; i++) {
+            row.setLength(0);
+            if (random.nextDouble() < BOOK_SHARE) {
+                // Hotness rank scattered over the flight numbers by a fixed permutation
+                long rank = flightSampler.sample(random) - 1;
+                int flight = (int) (rank * stride % flightCount);
+                row.append("book\tc").append(random.nextLong(customers)).append("@example.com\t")
+                        .append(flightId(flight));
+            } else {
+                int origin = airportSampler.sample(random) - 1;
+                int destination = destination(origin, random, airportSampler, hubSampler);
+                row.append("search\t").append(codes[origin]).append('\t').append(codes[destination]);
+            }
+            out.append(row.append('\n'));
+        }
+        return commands;
+    }
+
+    private int destination(int origin, SplittableRandom random, ZipfSampler airportSampler, ZipfSampler hubSampler) {
+        while (true) {
+            int destination = origin >= hubs && random.nextDouble() < SPOKE_TO_HUB
+                    ? hubSampler.sample(random) - 1
+                    : airportSampler.sample(random) - 1;
+            if (destination != origin) {
+                return destination;
+            }
+        }
+    }
+
+    private static Aircraft aircraft(double distance, SplittableRandom random) {
+        int category = distance < REGIONAL_KM ? 0 : distance < WIDE_BODY_KM ? 1 : 2;
+        int total = 0;
+        for (Aircraft aircraft : AIRCRAFT) {
+            total += aircraft.category == category ? aircraft.share : 0;
+        }
+        int pick = random.nextInt(total);
+        for (Aircraft aircraft : AIRCRAFT) {
+            if (aircraft.category == category) {
+                pick -= aircraft.share;
+                if (pick < 0) {
+                    return aircraft;
+                }
+            }
+        }
+        throw new IllegalStateException("No aircraft for category " + category);
+    }
+
+    private int departureMinute(SplittableRandom random) {
+        int pick = random.nextInt(hourTotal);
+        int hour = 0;
+        while (pick >= HOUR_WEIGHTS[hour]) {
+            pick -= HOUR_WEIGHTS[hour];
+            hour++;
+        }
+        return hour * 60 + random.nextInt(12) * 5;
+    }
+
+    private void airport(StringBuilder row, int airport) {
+        row.append(codes[airport]).append('\t').append(names[airport]).append('\t').append(locations[airport]).append('\t');
+    }
+
+    // "yyyy-MM-dd HH:mm" for minutes after the first day
+    private StringBuilder time(StringBuilder row, int minutes) {
+        row.append(dates[minutes / (24 * 60)]).append(' ');
+        int minuteOfDay = minutes % (24 * 60);
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        return row.append((char) ('0' + hour / 10)).append((char) ('0' + hour % 10)).append(':')
+                .append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10));
+    }
+
+    // Flight numbers cycle through the carriers: AA1, BA1, ..., LX1, AA2, ...
+    static String flightId(int index) {
+        return CARRIERS[index % CARRIERS.length] + (index / CARRIERS.length + 1);
+    }
+
+    private static String code(int index) {
+        return new String(new char[] {(char) ('A' + index / 676), (char) ('A' + index / 26 % 26), (char) ('A' + index % 26)});
+    }
+
+    // A step coprime with count, so rank * step % count visits every flight once
+    private static long stride(int count) {
+        long step = 2_654_435_761L % count;
+        while (count > 1 && gcd(step, count) != 1) {
+            step++;
+        }
+        return Math.max(1, step);
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static final class Aircraft {
+        final String model;
+        final int seats;
+        final int category; // 0 regional, 1 narrow-body, 2 wide-body
+        final int share;    // Relative frequency within the category
+
+        Aircraft(String model, int seats, int category, int share) {
+            this.model = model;
+            this.seats = seats;
+            this.category = category;
+            this.share = share;
+        }
+    }
+
+    // Zipf-distributed ranks 1..n by rejection-inversion (Hormann and Derflinger), in
+    // constant memory whatever n is
+    // Passes writes through in whole buffers and leaves the stream open on close
+    private static final class UnclosedStream extends FilterOutputStream {
+        UnclosedStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    static final class ZipfSampler {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(long n, double exponent) {
+            if (n < 1 || exponent <= 0) {
+                throw new IllegalArgumentException("Zipf needs at least one element and a positive exponent.");
+            }
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > n) {
+                    k = n;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return (int) k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1 - exponent);
+            if (t < -1) {
+                t = -1; // Guards against rounding just past the domain
+            }
+            return Math.exp(helper1(t) * x);
+        }
+
+        // log(1 + x) / x, accurate near 0
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        // (exp(x) - 1) / x, accurate near 0
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
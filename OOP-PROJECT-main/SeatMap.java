@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Cabin and row layout for a seat count: how many seats per row, their letters, and
+// which rows belong to which cabin. Layouts depend only on the seat count and are
+// shared through forCapacity, like airports and airplanes are.
+class SeatLayout {
+    // Letters used for seats across a row; 'I' is skipped as on real boarding passes
+    private static final String LETTERS = "ABCDEFGHJK";
+    private static final ConcurrentHashMap<Integer, SeatLayout> layouts = new ConcurrentHashMap<>();
+
+    private final int capacity;
+    private final int seatsPerRow;
+    private final int rows;
+    private final int firstEconomyRow;
+
+    private SeatLayout(int capacity) {
+        this.capacity = capacity;
+        // Regional, narrow-body and wide-body cabins
+        this.seatsPerRow = capacity <= 50 ? 4 : capacity <= 220 ? 6 : 10;
+        this.rows = (capacity + seatsPerRow - 1) / seatsPerRow;
+        // Roughly the first tenth of the rows is business class, at least one row when there are several
+        this.firstEconomyRow = rows > 1 ? Math.max(1, rows / 10) : 0;
+    }
+
+    static SeatLayout forCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Seat count cannot be negative.");
+        }
+        return layouts.computeIfAbsent(capacity, SeatLayout::new);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Seats in a row; the last row may be partly filled
+    public int seatsInRow(int row) {
+        return row < rows - 1 ? seatsPerRow : capacity - (rows - 1) * seatsPerRow;
+    }
+
+    public String getCabin(int row) {
+        return row < firstEconomyRow ? "Business" : "Economy";
+    }
+
+    // Seat numbers look like "12C": rows count from 1, letters from A
+    public String label(int seat) {
+        return (seat / seatsPerRow + 1) + String.valueOf(LETTERS.charAt(seat % seatsPerRow));
+    }
+
+    // Seat index for a label, or -1 if there is no such seat
+    public int parse(String label) {
+        if (label == null || label.length() < 2) {
+            return -1;
+        }
+        String text = label.trim().toUpperCase(Locale.ROOT);
+        int letter = LETTERS.indexOf(text.charAt(text.length() - 1));
+        if (letter < 0 || letter >= seatsPerRow) {
+            return -1;
+        }
+        int row;
+        try {
+            row = Integer.parseInt(text.substring(0, text.length() - 1)) - 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        int seat = row * seatsPerRow + letter;
+        return row < 0 || seat >= capacity ? -1 : seat;
+    }
+}
+
+// Seat occupancy of one flight, one bit per seat.
+//
+// Rows never straddle a word: each 64-bit word holds 64 / seatsPerRow whole rows (ten
+// rows of six seats, six rows of ten), so a row can be read, searched and updated with a
+// single compare-and-set. Taking or freeing a given seat is one CAS on its word;
+// finding K adjacent free seats is a few shifts and ANDs per row. A flight takes
+// ceil(rows / rowsPerWord) words, 7 for 400 seats in rows of six or of ten, so millions
+// of seats fit in a few megabytes.
+class SeatMap {
+    private final SeatLayout layout;
+    private final int rowsPerWord;
+    private final AtomicLongArray words;
+
+    public SeatMap(SeatLayout layout) {
+        this.layout = layout;
+        this.rowsPerWord = 64 / layout.getSeatsPerRow();
+        this.words = new AtomicLongArray(Math.max(1, (layout.getRows() + rowsPerWord - 1) / rowsPerWord));
+    }
+
+    public SeatLayout getLayout() {
+        return layout;
+    }
+
+    // Take a specific seat; false if it is already taken
+    public boolean assign(int seat) {
+        checkSeat(seat);
+        int word = word(seat);
+        long bit = 1L << bitIndex(seat);
+        while (true) {
+            long current = words.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current | bit)) {
+                return true;
+            }
+        }
+    }
+
+    // Free a seat; false if it was not taken
+    public boolean release(int seat) {
+        checkSeat(seat);
+        int word = word(seat);
+        long bit = 1L << bitIndex(seat);
+        while (true) {
+            long current = words.get(word);
+            if ((current & bit) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current & ~bit)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean isTaken(int seat) {
+        checkSeat(seat);
+        return (words.get(word(seat)) & (1L << bitIndex(seat))) != 0;
+    }
+
+    // Take the first free seat, front rows first; returns it or -1 if the flight is full
+    public int assignAny() {
+        for (int word = 0; word < words.length(); word++) {
+            long valid = validBits(word);
+            while (true) {
+                long current = words.get(word);
+                long free = ~current & valid;
+                if (free == 0) {
+                    break;
+                }
+                long bit = Long.lowestOneBit(free);
+                if (words.compareAndSet(word, current, current | bit)) {
+                    return seat(word, Long.numberOfTrailingZeros(bit));
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Take count adjacent seats in one row, front rows first; returns the first seat or -1
+    public int assignAdjacent(int count) {
+        if (count <= 0 || count > layout.getSeatsPerRow()) {
+            return -1;
+        }
+        for (int word = 0; word < words.length(); word++) {
+            while (true) {
+                long current = words.get(word);
+                int seat = findAdjacent(word, current, count);
+                if (seat < 0) {
+                    break; // Nothing in this word; try the next one
+                }
+                long bits = ((1L << count) - 1) << bitIndex(seat);
+                if (words.compareAndSet(word, current, current | bits)) {
+                    return seat;
+                }
+                // Lost a race for this word: look at it again
+            }
+        }
+        return -1;
+    }
+
+    // First seat of count adjacent free seats in one row, or -1; does not take them
+    public int findAdjacent(int count) {
+        if (count <= 0 || count > layout.getSeatsPerRow()) {
+            return -1;
+        }
+        for (int word = 0; word < words.length(); word++) {
+            int seat = findAdjacent(word, words.get(word), count);
+            if (seat >= 0) {
+                return seat;
+            }
+        }
+        return -1;
+    }
+
+    // Seats currently taken
+    public int countTaken() {
+        int taken = 0;
+        for (int word = 0; word < words.length(); word++) {
+            taken += Long.bitCount(words.get(word));
+        }
+        return taken;
+    }
+
+    // Labels of all taken seats, in seat order
+    public List<String> takenSeats() {
+        List<String> labels = new ArrayList<>();
+        for (int seat = 0; seat < layout.getCapacity(); seat++) {
+            if (isTaken(seat)) {
+                labels.add(layout.label(seat));
+            }
+        }
+        return labels;
+    }
+
+    // Search the rows packed into one word value
+    private int findAdjacent(int word, long value, int count) {
+        int firstRow = word * rowsPerWord;
+        int seatsPerRow = layout.getSeatsPerRow();
+        for (int r = 0; r < rowsPerWord && firstRow + r < layout.getRows(); r++) {
+            int row = firstRow + r;
+            int seatsInRow = layout.seatsInRow(row);
+            if (seatsInRow < count) {
+                continue;
+            }
+            long free = ~(value >>> (r * seatsPerRow)) & ((1L << seatsInRow) - 1);
+            // Bit i survives only if seats i .. i+count-1 are all free
+            long run = free;
+            for (int i = 1; i < count && run != 0; i++) {
+                run &= free >>> i;
+            }
+            if (run != 0) {
+                return row * seatsPerRow + Long.numberOfTrailingZeros(run);
+            }
+        }
+        return -1;
+    }
+
+    // Bits of a word that stand for real seats
+    private long validBits(int word) {
+        long valid = 0;
+        int seatsPerRow = layout.getSeatsPerRow();
+        for (int r = 0; r < rowsPerWord && word * rowsPerWord + r < layout.getRows(); r++) {
+            valid |= ((1L << layout.seatsInRow(word * rowsPerWord + r)) - 1) << (r * seatsPerRow);
+        }
+        return valid;
+    }
+
+    private int seat(int word, int bitIndex) {
+        int seatsPerRow = layout.getSeatsPerRow();
+        return (word * rowsPerWord + bitIndex / seatsPerRow) * seatsPerRow + bitIndex % seatsPerRow;
+    }
+
+    private int word(int seat) {
+        return seat / layout.getSeatsPerRow() / rowsPerWord;
+    }
+
+    private int bitIndex(int seat) {
+        int row = seat / layout.getSeatsPerRow();
+        return (row % rowsPerWord) * layout.getSeatsPerRow() + seat % layout.getSeatsPerRow();
+    }
+
+    private void checkSeat(int seat) {
+        if (seat < 0 || seat >= layout.getCapacity()) {
+            throw new IllegalArgumentException("No seat " + seat + " on this flight.");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Fixtures for the JMH benchmarks, used by FlightWorkload. Kept in this build rather
+// than the application's so the application jar carries no benchmark code:
+//
+//   mvn -q install
+//   mvn -q -f benchmarks/pom.xml package
+//   java -jar benchmarks/target/benchmarks.jar [benchmark regex] [-p flights=10000]
+//
+// Flights are generated with a fixed seed, so runs are comparable between builds. Every
+// flight gets its airplane's real capacity (50 to 400 seats), so booking benchmarks
+// run into sold-out flights and waitlists the way real traffic does.
+class FlightBenchmarks {
+    static final long SEED = 42;
+    static final int AIRPORTS = 200;
+    private static final int AIRPLANES = 500;
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 0, 0);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Flights "F0".."F<count-1>" between random airports with departures over a month
+    static List<Flight> generateFlights(int count) {
+        Random random = new Random(SEED);
+        Airport[] airports = new Airport[AIRPORTS];
+        for (int i = 0; i < AIRPORTS; i++) {
+            airports[i] = AirportDirectory.resolve(airportCode(i), "Airport " + i, "City " + i);
+        }
+        Airplane[] airplanes = new Airplane[AIRPLANES];
+        for (int i = 0; i < AIRPLANES; i++) {
+            airplanes[i] = Fleet.resolve("AP" + i, i % 3 == 0 ? "A320" : i % 3 == 1 ? "B737" : "B787", 50 + (i % 8) * 50);
+        }
+        List<Flight> flights = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int origin = random.nextInt(AIRPORTS);
+            int destination = (origin + 1 + random.nextInt(AIRPORTS - 1)) % AIRPORTS;
+            int departure = random.nextInt(30 * 24 * 60);
+            int arrival = departure + 45 + random.nextInt(600);
+            flights.add(new Flight("F" + i, airports[origin], airports[destination], time(departure), time(arrival),
+                    airplanes[random.nextInt(AIRPLANES)]));
+        }
+        return flights;
+    }
+
+    static String airportCode(int index) {
+        return String.format(Locale.ROOT, "A%03d", index);
+    }
+
+    // Minutes after the start of June 2024
+    private static String time(int minutes) {
+        return START.plusMinutes(minutes).format(TIME_FORMAT);
+    }
+}
@@ -0,0 +1,93 @@
+import bench.Workload;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// The application side of bench.Workload; lives in the default package next to the
+// classes it drives
+public class FlightWorkload implements Workload {
+    private List<Flight> flights = new ArrayList<>();
+    private String[] ids = new String[0];
+    private Customer[] customers = new Customer[0];
+
+    @Override
+    public void schedule(int count) {
+        flights = FlightBenchmarks.generateFlights(count);
+        ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = flights.get(i).getFlightId();
+        }
+        FlightSchedule.setFlights(new ArrayList<>(flights));
+    }
+
+    @Override
+    public long lookup(int flight) {
+        return FlightSchedule.findFlightById(ids[flight]).getAvailableSeats();
+    }
+
+    @Override
+    public int search(int origin, int destination) {
+        return FlightSchedule.searchFlights(FlightBenchmarks.airportCode(origin),
+                FlightBenchmarks.airportCode(destination)).size();
+    }
+
+    @Override
+    public void customers(int count) {
+        customers = new Customer[count];
+        for (int i = 0; i < count; i++) {
+            customers[i] = new Customer("Bench " + i, "bench" + i + "@localhost");
+            customers[i].setQuiet(true);
+        }
+    }
+
+    @Override
+    public int bookOrCancel(int customer, int flight, int maxBookings) {
+        Customer booker = customers[customer];
+        List<Flight> held = booker.getBookings();
+        if (held.size() >= maxBookings) {
+            try {
+                booker.cancelBooking(held.get(0).getFlightId());
+                return CANCELLED;
+            } catch (Exception e) {
+                return REJECTED; // Another thread cancelled it for the same customer first
+            }
+        }
+        switch (booker.bookOrWaitlist(ids[flight], 1).getStatus()) {
+            case CONFIRMED:
+                return CONFIRMED;
+            case WAITLISTED:
+                return WAITLISTED;
+            case ALREADY_WAITLISTED:
+                // Give up the place so waitlists turn over instead of only growing
+                return booker.leaveWaitlist(ids[flight]) ? LEFT_WAITLIST : REJECTED;
+            default:
+                return REJECTED;
+        }
+    }
+
+    @Override
+    public void writeFiles(String textFile, String snapshotFile) throws IOException {
+        FileManager.saveFlightsToFile(flights, textFile);
+        BinaryFlightSnapshot.write(flights, snapshotFile);
+    }
+
+    @Override
+    public int loadText(String textFile) throws IOException {
+        return new ParallelFlightLoader(textFile).load(new LoadReport()).size();
+    }
+
+    @Override
+    public int readSnapshot(String snapshotFile) throws IOException {
+        return BinaryFlightSnapshot.read(snapshotFile).size();
+    }
+
+    @Override
+    public void writeSnapshot(String snapshotFile) throws IOException {
+        BinaryFlightSnapshot.write(flights, snapshotFile);
+    }
+
+    @Override
+    public void clear() {
+        FlightSchedule.setFlights(new ArrayList<>());
+    }
+}
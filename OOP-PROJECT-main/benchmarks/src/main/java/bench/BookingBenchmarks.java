@@ -0,0 +1,109 @@
+package bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Booking traffic on a handful of popular flights with their airplanes' real capacities.
+//
+// Customers hold up to MAX_BOOKINGS seats each and cancel one before booking again. Between
+// them they want somewhat more seats than the popular flights have (about 16k against
+// 14k), so once warmed up the mix is bookings, sold-out flights, waitlist joins,
+// customers leaving a waitlist they are already on, cancellations and the waitlist
+// promotions they trigger. The outcome counters show the mix a run actually had.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookingBenchmarks {
+    private static final int FLIGHTS = 10_000;
+    private static final int POPULAR_FLIGHTS = 64;
+    private static final int CUSTOMERS = 8_192;
+    private static final int MAX_BOOKINGS = 2;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        workload = Workload.create();
+        workload.schedule(FLIGHTS);
+        workload.customers(CUSTOMERS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.clear();
+    }
+
+    // Per-thread outcome counts, reported by JMH next to the score
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long confirmed;
+        public long waitlisted;
+        public long rejected;
+        public long cancelled;
+        public long left;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            confirmed = 0;
+            waitlisted = 0;
+            rejected = 0;
+            cancelled = 0;
+            left = 0;
+        }
+
+        int count(int outcome) {
+            switch (outcome) {
+                case Workload.CONFIRMED:
+                    confirmed++;
+                    break;
+                case Workload.WAITLISTED:
+                    waitlisted++;
+                    break;
+                case Workload.CANCELLED:
+                    cancelled++;
+                    break;
+                case Workload.LEFT_WAITLIST:
+                    left++;
+                    break;
+                default:
+                    rejected++;
+            }
+            return outcome;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int bookOrCancel(Outcomes outcomes) {
+        return outcomes.count(next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int bookOrCancelContended(Outcomes outcomes) {
+        return outcomes.count(next());
+    }
+
+    private int next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return workload.bookOrCancel(random.nextInt(CUSTOMERS), random.nextInt(POPULAR_FLIGHTS), MAX_BOOKINGS);
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Loading flights.txt-style files and reading/writing binary snapshots of the given size.
+// These go through ParallelFlightLoader and BinaryFlightSnapshot directly; the
+// FileManager wrappers add one console line per call.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileBenchmarks {
+    @Param({"10000", "1000000"})
+    public int flights;
+
+    private Workload workload;
+    private File textFile;
+    private File snapshotFile;
+    private File writtenSnapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException, IOException {
+        workload = Workload.create();
+        workload.schedule(flights);
+        textFile = File.createTempFile("flight-bench-", ".txt");
+        snapshotFile = File.createTempFile("flight-bench-", ".snapshot");
+        writtenSnapshot = File.createTempFile("flight-bench-written-", ".snapshot");
+        textFile.delete(); // FileManager writes the header only into an empty file
+        workload.writeFiles(textFile.getPath(), snapshotFile.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        textFile.delete();
+        snapshotFile.delete();
+        writtenSnapshot.delete();
+        workload.clear();
+    }
+
+    @Benchmark
+    public int loadText() throws IOException {
+        return workload.loadText(textFile.getPath());
+    }
+
+    @Benchmark
+    public int readSnapshot() throws IOException {
+        return workload.readSnapshot(snapshotFile.getPath());
+    }
+
+    @Benchmark
+    public void writeSnapshot() throws IOException {
+        workload.writeSnapshot(writtenSnapshot.getPath());
+    }
+}
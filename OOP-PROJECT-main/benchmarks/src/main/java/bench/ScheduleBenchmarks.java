@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Lookups by ID and route searches against a schedule of the given size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScheduleBenchmarks {
+    private static final int AIRPORTS = 200; // As generated by FlightBenchmarks
+
+    @Param({"10000", "1000000"})
+    public int flights;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        workload = Workload.create();
+        workload.schedule(flights);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.clear();
+    }
+
+    @Benchmark
+    public long lookupById() {
+        return workload.lookup(ThreadLocalRandom.current().nextInt(flights));
+    }
+
+    @Benchmark
+    public int searchRoute() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return workload.search(random.nextInt(AIRPORTS), random.nextInt(AIRPORTS));
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import java.io.IOException;
+
+// What the benchmarks drive. JMH needs benchmark classes in a named package, and a named
+// package cannot refer to the application's classes in the default package, so the
+// operations are implemented by FlightWorkload (default package) and reached through
+// this interface; only creating it is reflective.
+public interface Workload {
+    // Outcomes of bookOrCancel
+    int CONFIRMED = 0;
+    int WAITLISTED = 1;
+    int REJECTED = 2;
+    int CANCELLED = 3;
+    int LEFT_WAITLIST = 4;
+
+    static Workload create() throws ReflectiveOperationException {
+        return (Workload) Class.forName("FlightWorkload").getDeclaredConstructor().newInstance();
+    }
+
+    // Put count generated flights in the schedule
+    void schedule(int count);
+
+    // Seats left on the flight with the given number
+    long lookup(int flight);
+
+    // Flights found between two generated airports
+    int search(int origin, int destination);
+
+    // Create the customers used by bookOrCancel
+    void customers(int count);
+
+    // A customer already holding maxBookings seats cancels one, otherwise they book (or
+    // join the waitlist of) the given flight, or leave its waitlist if they are on it
+    // already; returns one of the outcomes above
+    int bookOrCancel(int customer, int flight, int maxBookings);
+
+    // Write the scheduled flights as a flights.txt-style file and as a snapshot
+    void writeFiles(String textFile, String snapshotFile) throws IOException;
+
+    int loadText(String textFile) throws IOException;
+
+    int readSnapshot(String snapshotFile) throws IOException;
+
+    void writeSnapshot(String snapshotFile) throws IOException;
+
+    // Empty the schedule again
+    void clear();
+}
@@ -0,0 +1,150 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// A crash can leave half a record at the end of the journal. Recovery must replay every
+// complete record on top of the snapshot and cut the torn tail off.
+class FlightJournalRecoveryTest {
+    private final Airport origin = new Airport("ORD", "O'Hare", "Chicago");
+    private final Airport destination = new Airport("DEN", "Denver International", "Denver");
+
+    private Path directory;
+    private final List<FlightJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void openJournal() throws IOException {
+        directory = Files.createTempDirectory("flight-journal-test");
+        FlightJournal journal = open(directory);
+        FlightSchedule.setFlights(journal.recover(ArrayList::new));
+        FlightSchedule.attachJournal(journal);
+        FlightSchedule.compactJournal();
+    }
+
+    @AfterEach
+    void closeJournals() throws IOException {
+        FlightSchedule.attachJournal(null);
+        FlightSchedule.setFlights(new ArrayList<>());
+        for (FlightJournal journal : journals) {
+            journal.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void recoversEveryCompleteRecordAndDropsTornTail() throws Exception {
+        Map<String, Integer> expected = runWorkload();
+        Path crashed = crashCopy("torn");
+        long journalSize = Files.size(crashed.resolve("journal.bin"));
+        try (FileChannel channel = FileChannel.open(crashed.resolve("journal.bin"), StandardOpenOption.APPEND)) {
+            // A length prefix promising more bytes than made it to disk
+            channel.write(ByteBuffer.allocate(10).putInt(64).putInt(7).flip());
+        }
+
+        List<Flight> recovered = open(crashed).recover(ArrayList::new);
+
+        assertEquals(expected, seatsById(recovered));
+        assertEquals(journalSize, Files.size(crashed.resolve("journal.bin")));
+    }
+
+    @Test
+    void recordCutShortIsDiscarded() throws Exception {
+        Map<String, Integer> expected = runWorkload();
+        Path crashed = crashCopy("short");
+        Path journalFile = crashed.resolve("journal.bin");
+        long journalSize = Files.size(journalFile);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(journalSize - 3);
+        }
+
+        List<Flight> recovered = open(crashed).recover(ArrayList::new);
+
+        // The last record cancelled JR300; without it the flight is still scheduled
+        expected.put("JR300", 40);
+        assertEquals(expected, seatsById(recovered));
+        assertTrue(Files.size(journalFile) < journalSize - 3);
+    }
+
+    @Test
+    void compactedJournalRecoversFromSnapshotAlone() throws Exception {
+        Map<String, Integer> expected = runWorkload();
+        FlightSchedule.compactJournal();
+        Path crashed = crashCopy("compacted");
+
+        assertEquals(0, Files.size(crashed.resolve("journal.bin")));
+        assertEquals(expected, seatsById(open(crashed).recover(ArrayList::new)));
+    }
+
+    // Schedule and seat changes of every kind; returns the expected seats left per flight
+    private Map<String, Integer> runWorkload() throws Exception {
+        FlightSchedule.addFlight(flight("JR100", 10), false);
+        FlightSchedule.addFlight(flight("JR200", 20), false);
+        Customer customer = new Customer("Journal Customer", "journal@example.com");
+        customer.setQuiet(true);
+        assertTrue(customer.bookSeats("JR100", 3).isConfirmed());
+        assertTrue(customer.bookSeats("JR200", 5).isConfirmed());
+        customer.cancelBooking("JR100");
+        // The five booked seats move to the bigger airplane
+        FlightSchedule.updateFlight(flight("JR200", 30), false);
+        FlightSchedule.addFlight(flight("JR300", 40), false);
+        FlightSchedule.cancelFlight("JR300", false);
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("JR100", 8);
+        expected.put("JR200", 25);
+        assertEquals(expected, seatsById(FlightSchedule.getFlights()));
+        assertNull(FlightSchedule.findFlightById("JR300"));
+        assertNotNull(FlightSchedule.findFlightById("JR200"));
+        return expected;
+    }
+
+    // The files as a crash would leave them: every acknowledged change is already on disk
+    private Path crashCopy(String name) throws IOException {
+        Path copy = Files.createDirectory(directory.resolve(name));
+        Files.copy(directory.resolve("journal.bin"), copy.resolve("journal.bin"), StandardCopyOption.COPY_ATTRIBUTES);
+        Files.copy(directory.resolve("snapshot.bin"), copy.resolve("snapshot.bin"), StandardCopyOption.COPY_ATTRIBUTES);
+        return copy;
+    }
+
+    private FlightJournal open(Path in) throws IOException {
+        FlightJournal journal = new FlightJournal(in.resolve("journal.bin").toString(),
+                in.resolve("snapshot.bin").toString(), true);
+        journals.add(journal);
+        return journal;
+    }
+
+    private Flight flight(String id, int seats) {
+        return new Flight(id, origin, destination, "2024-06-03 07:00", "2024-06-03 09:30",
+                new Airplane("JR-" + id + "-" + seats, "A321", seats));
+    }
+
+    private static Map<String, Integer> seatsById(List<Flight> flights) {
+        Map<String, Integer> seats = new LinkedHashMap<>();
+        for (Flight flight : flights) {
+            seats.put(flight.getFlightId(), flight.getAvailableSeats());
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The route, origin, destination and departure indexes stay in step with the schedule
+// when flights are updated, including flights whose airports were changed on the object
+// itself
+class FlightScheduleIndexTest {
+    private final Airport jfk = new Airport("JFK", "John F. Kennedy", "New York");
+    private final Airport lax = new Airport("LAX", "Los Angeles International", "Los Angeles");
+    private final Airport bos = new Airport("BOS", "Logan", "Boston");
+    private final Airplane airplane = new Airplane("IDX-1", "A320", 180);
+
+    @BeforeEach
+    void emptySchedule() {
+        FlightSchedule.attachJournal(null);
+        FlightSchedule.setFlights(new ArrayList<>());
+    }
+
+    @Test
+    void updateMovesFlightToItsNewRoute() throws Exception {
+        FlightSchedule.addFlight(flight("IX100", jfk, lax), false);
+        FlightSchedule.updateFlight(flight("IX100", bos, lax), false);
+
+        assertTrue(FlightSchedule.searchFlights("JFK", "LAX").isEmpty());
+        assertTrue(FlightSchedule.searchFlightsFrom("JFK").isEmpty());
+        assertEquals(List.of("IX100"), ids(FlightSchedule.searchFlights("BOS", "LAX")));
+        assertEquals(List.of("IX100"), ids(FlightSchedule.searchFlightsTo("LAX")));
+    }
+
+    @Test
+    void updateOfFlightChangedInPlaceLeavesNoStaleRouteEntry() throws Exception {
+        Flight flight = flight("IX200", jfk, lax);
+        FlightSchedule.addFlight(flight, false);
+        flight.setOrigin(bos);
+        FlightSchedule.updateFlight(flight, false);
+
+        assertTrue(FlightSchedule.searchFlights("JFK", "LAX").isEmpty());
+        assertTrue(FlightSchedule.searchFlightsFrom("JFK").isEmpty());
+        assertEquals(List.of("IX200"), ids(FlightSchedule.searchFlights("BOS", "LAX")));
+    }
+
+    @Test
+    void searchMatchesAirportCodesCaseInsensitively() {
+        FlightSchedule.addFlight(flight("IX300", new Airport("jfk", jfk.getName(), jfk.getLocation()), lax), false);
+
+        assertEquals(List.of("IX300"), ids(FlightSchedule.searchFlights("JFK", "lax")));
+        assertEquals(List.of("IX300"), ids(FlightSchedule.searchFlights("jfk", "LAX")));
+    }
+
+    @Test
+    void cancelRemovesFlightFromEveryIndex() throws Exception {
+        FlightSchedule.addFlight(flight("IX400", jfk, lax), false);
+        FlightSchedule.cancelFlight("ix400", false);
+
+        assertTrue(FlightSchedule.searchFlights("JFK", "LAX").isEmpty());
+        assertTrue(FlightSchedule.searchFlightsFrom("JFK").isEmpty());
+        assertTrue(FlightSchedule.searchFlightsTo("LAX").isEmpty());
+    }
+
+    @Test
+    void departuresFollowAnUpdatedTime() throws Exception {
+        FlightSchedule.addFlight(flight("IX500", jfk, lax), false);
+        FlightSchedule.addFlight(flight("IX501", jfk, lax, "2024-06-03 10:00"), false);
+        FlightSchedule.updateFlight(flight("IX500", jfk, lax, "2024-06-03 12:00"), false);
+
+        assertTrue(FlightSchedule.searchDepartures("JFK", "2024-06-03 07:00", "2024-06-03 09:00").isEmpty());
+        assertEquals(List.of("IX501", "IX500"),
+                ids(FlightSchedule.searchDepartures("jfk", "2024-06-03 00:00", "2024-06-03 23:59")));
+    }
+
+    @Test
+    void updateOfFlightChangedInPlaceLeavesNoStaleDeparture() throws Exception {
+        Flight flight = flight("IX600", jfk, lax);
+        FlightSchedule.addFlight(flight, false);
+        flight.setOrigin(bos);
+        flight.setDepartureTime("2024-06-03 09:00");
+        FlightSchedule.updateFlight(flight, false);
+
+        assertTrue(FlightSchedule.searchDepartures("JFK", "2024-06-03 00:00", "2024-06-03 23:59").isEmpty());
+        assertEquals(List.of("IX600"),
+                ids(FlightSchedule.searchDepartures("BOS", "2024-06-03 09:00", "2024-06-03 09:00")));
+    }
+
+    private Flight flight(String id, Airport origin, Airport destination) {
+        return flight(id, origin, destination, "2024-06-03 08:00");
+    }
+
+    private Flight flight(String id, Airport origin, Airport destination, String departure) {
+        return new Flight(id, origin, destination, departure, "2024-06-03 14:00", airplane);
+    }
+
+    private static List<String> ids(List<Flight> flights) {
+        List<String> ids = new ArrayList<>();
+        for (Flight flight : flights) {
+            ids.add(flight.getFlightId());
+        }
+        return ids;
+    }
+}
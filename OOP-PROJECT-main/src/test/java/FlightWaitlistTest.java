@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Seats coming back go to waiting customers strictly in the order they joined, each
+// customer is promoted at most once, and no seat is lost when promotions race
+class FlightWaitlistTest {
+    private final Airport origin = new Airport("BOS", "Logan", "Boston");
+    private final Airport destination = new Airport("DCA", "Reagan National", "Washington");
+
+    @BeforeEach
+    void emptySchedule() {
+        FlightSchedule.attachJournal(null);
+        FlightSchedule.setFlights(new ArrayList<>());
+    }
+
+    @Test
+    void releasedSeatsGoToTheHeadWithoutSkippingIt() throws Exception {
+        Flight flight = flight("WL100", 3);
+        FlightSchedule.addFlight(flight, false);
+        Customer holder = customer("Holder");
+        assertTrue(holder.bookSeats("WL100", 3).isConfirmed());
+        Customer first = customer("First");
+        Customer second = customer("Second");
+        Customer third = customer("Third");
+        assertEquals(1, first.bookOrWaitlist("WL100", 1).getWaitlistPosition());
+        assertEquals(2, second.bookOrWaitlist("WL100", 2).getWaitlistPosition());
+        assertEquals(3, third.bookOrWaitlist("WL100", 1).getWaitlistPosition());
+
+        holder.cancelBooking("WL100");
+        assertEquals(1, first.getBookings().size());
+
+        // One seat is free, but the head needs two; the smaller request behind it waits
+        holder.cancelBooking("WL100");
+        assertTrue(second.getBookings().isEmpty());
+        assertTrue(third.getBookings().isEmpty());
+        assertEquals(1, flight.getAvailableSeats());
+
+        holder.cancelBooking("WL100");
+        assertEquals(2, second.getBookings().size());
+        assertTrue(third.getBookings().isEmpty());
+        assertEquals(1, FlightWaitlist.getWaitingCount("WL100"));
+        assertEquals(0, flight.getAvailableSeats());
+    }
+
+    @Test
+    void withdrawnCustomerIsSkipped() throws Exception {
+        FlightSchedule.addFlight(flight("WL200", 1), false);
+        Customer holder = customer("Holder");
+        assertTrue(holder.bookSeats("WL200", 1).isConfirmed());
+        Customer leaving = customer("Leaving");
+        Customer staying = customer("Staying");
+        leaving.bookOrWaitlist("WL200", 1);
+        staying.bookOrWaitlist("WL200", 1);
+
+        assertTrue(FlightWaitlist.withdraw("wl200", leaving));
+        holder.cancelBooking("WL200");
+
+        assertTrue(leaving.getBookings().isEmpty());
+        assertEquals(1, staying.getBookings().size());
+        assertEquals(0, FlightWaitlist.getWaitingCount("WL200"));
+    }
+
+    @Test
+    void concurrentReleasesPromoteInJoinOrderExactlyOnce() throws Exception {
+        int seats = 64;
+        Flight flight = flight("WL300", seats);
+        FlightSchedule.addFlight(flight, false);
+        List<Customer> holders = new ArrayList<>();
+        for (int i = 0; i < seats; i++) {
+            Customer holder = customer("Holder " + i);
+            assertTrue(holder.bookSeats("WL300", 1).isConfirmed());
+            holders.add(holder);
+        }
+        List<Customer> waiting = new ArrayList<>();
+        for (int i = 0; i < seats * 2; i++) {
+            Customer customer = customer("Waiting " + i);
+            assertEquals(i + 1, customer.bookOrWaitlist("WL300", 1).getWaitlistPosition());
+            waiting.add(customer);
+        }
+
+        // Every holder cancels at the same moment, so promotions run on many threads at once
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> cancels = new ArrayList<>();
+            for (Customer holder : holders) {
+                cancels.add(executor.submit(() -> {
+                    start.await();
+                    holder.cancelBooking("WL300");
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> cancel : cancels) {
+                cancel.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < waiting.size(); i++) {
+            assertEquals(i < seats ? 1 : 0, waiting.get(i).getBookings().size(), "Waiting " + i);
+        }
+        assertEquals(0, flight.getAvailableSeats());
+        assertEquals(seats, FlightWaitlist.getWaitingCount("WL300"));
+        assertEquals(seats, PassengerManifest.getPassengers("WL300").size());
+    }
+
+    private Flight flight(String id, int seats) {
+        return new Flight(id, origin, destination, "2024-06-05 06:30", "2024-06-05 08:00",
+                new Airplane("WL-" + id, "CRJ900", seats));
+    }
+
+    private static Customer customer(String name) {
+        Customer customer = new Customer(name, "waitlist@example.com");
+        customer.setQuiet(true);
+        return customer;
+    }
+}
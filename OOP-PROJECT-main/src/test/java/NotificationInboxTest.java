@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// The inbox keeps the newest capacity messages and counts the ones it overwrote
+class NotificationInboxTest {
+
+    @Test
+    void fullInboxOverwritesOldestAndCountsDrops() {
+        NotificationInbox inbox = new NotificationInbox(3);
+        for (int i = 1; i <= 5; i++) {
+            inbox.add("message " + i);
+        }
+
+        assertEquals(3, inbox.size());
+        assertEquals(2, inbox.getDroppedCount());
+        assertEquals(List.of("message 5", "message 4", "message 3"), messages(inbox.peek(0, 10)));
+    }
+
+    @Test
+    void batchWrapsAroundLikeSingleAdds() {
+        NotificationInbox inbox = new NotificationInbox(4);
+        inbox.add("message 1");
+        inbox.addAll(List.of("message 2", "message 3", "message 4", "message 5", "message 6", "message 7"));
+
+        assertEquals(3, inbox.getDroppedCount());
+        assertEquals(List.of("message 7", "message 6"), messages(inbox.peek(0, 2)));
+        assertEquals(List.of("message 5", "message 4"), messages(inbox.peek(2, 2)));
+        assertTrue(inbox.peek(4, 2).isEmpty());
+    }
+
+    @Test
+    void overwritingUnreadMessagesKeepsUnreadCountInRange() {
+        NotificationInbox inbox = new NotificationInbox(2);
+        inbox.add("message 1");
+        inbox.add("message 2");
+        inbox.read(0, 1); // Marks message 2 read
+        inbox.add("message 3"); // Overwrites unread message 1
+
+        assertEquals(1, inbox.getDroppedCount());
+        assertEquals(1, inbox.getUnreadCount());
+        inbox.add("message 4"); // Overwrites read message 2
+        assertEquals(2, inbox.getUnreadCount());
+        assertEquals(2, inbox.getDroppedCount());
+    }
+
+    @Test
+    void readMarksOnlyThePageRead() {
+        NotificationInbox inbox = new NotificationInbox(5);
+        for (int i = 1; i <= 4; i++) {
+            inbox.add("message " + i);
+        }
+
+        assertEquals(List.of("message 4", "message 3"), messages(inbox.read(0, 2)));
+        assertEquals(2, inbox.getUnreadCount());
+        inbox.peek(0, 4);
+        assertEquals(2, inbox.getUnreadCount());
+        inbox.markAllRead();
+        assertEquals(0, inbox.getUnreadCount());
+    }
+
+    @Test
+    void clearResetsContentsAndDropCount() {
+        NotificationInbox inbox = new NotificationInbox(2);
+        for (int i = 1; i <= 4; i++) {
+            inbox.add("message " + i);
+        }
+        inbox.clear();
+
+        assertEquals(0, inbox.size());
+        assertEquals(0, inbox.getDroppedCount());
+        assertEquals(0, inbox.getUnreadCount());
+        inbox.add("message 5");
+        assertEquals(List.of("message 5"), messages(inbox.peek(0, 10)));
+    }
+
+    @Test
+    void longMessagesAreTruncated() {
+        NotificationInbox inbox = new NotificationInbox(1);
+        inbox.add("x".repeat(NotificationInbox.MAX_MESSAGE_LENGTH + 100));
+
+        String stored = inbox.peek(0, 1).get(0).getMessage();
+        assertEquals(NotificationInbox.MAX_MESSAGE_LENGTH, stored.length());
+        assertTrue(stored.endsWith("(truncated)"));
+    }
+
+    @Test
+    void rejectsNonPositiveCapacityAndNegativePaging() {
+        assertThrows(IllegalArgumentException.class, () -> new NotificationInbox(0));
+        assertThrows(IllegalArgumentException.class, () -> new NotificationInbox(1).peek(-1, 1));
+    }
+
+    private static List<String> messages(List<Notification> notifications) {
+        List<String> messages = new ArrayList<>();
+        for (Notification notification : notifications) {
+            messages.add(notification.getMessage());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The parallel loader returns the same flights and report as the sequential one, and
+// failures surface as IOException like they do there
+class ParallelFlightLoaderTest {
+    private Path file;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        file = Files.createTempFile("flights", ".txt");
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void matchesSequentialLoaderAcrossChunks() throws IOException {
+        // Large enough to be cut into several chunks
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new ScheduleGenerator(7, 30_000, 200, 7).writeSchedule(out);
+            out.write("XX1\tAAA\tBroken line\n");
+            out.write("\n");
+            out.write("XX2\tAAA\tA\tA\tBBB\tB\tB\t2024-06-03 10:00\t2024-06-03 11:00\t50\tT-1\tE175\r\n");
+        }
+        assertTrue(Files.size(file) > 2 << 20);
+
+        LoadReport sequentialReport = new LoadReport();
+        List<Flight> sequential = FileManager.loadFlightsFromFile(file.toString(), sequentialReport);
+        LoadReport parallelReport = new LoadReport();
+        List<Flight> parallel = new ParallelFlightLoader(file.toString()).load(parallelReport);
+
+        assertEquals(30_001, parallel.size());
+        assertEquals(describe(sequential), describe(parallel));
+        assertEquals(sequentialReport.getParsedLines(), parallelReport.getParsedLines());
+        assertEquals(1, parallelReport.getInvalidLines());
+        assertEquals(sequentialReport.getBlankLines(), parallelReport.getBlankLines());
+        assertEquals(sequentialReport.getErrors(), parallelReport.getErrors());
+    }
+
+    @Test
+    void headerOnlyFileHasNoFlights() throws IOException {
+        Files.writeString(file, "FID\tOC\tOAirName\n");
+
+        assertTrue(new ParallelFlightLoader(file.toString()).load(new LoadReport()).isEmpty());
+    }
+
+    @Test
+    void missingFileIsAnIOException() throws IOException {
+        Files.delete(file);
+
+        assertThrows(IOException.class, () -> new ParallelFlightLoader(file.toString()).load(new LoadReport()));
+    }
+
+    private static List<String> describe(List<Flight> flights) {
+        List<String> described = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            described.add(flight.getFlightId() + " " + flight.getOrigin().getAirportCode() + " "
+                    + flight.getDestination().getAirportCode() + " " + flight.getDepartureTime() + " "
+                    + flight.getTotalSeats() + " " + flight.getAvailableSeats());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Reloading the schedule replaces the Flight objects, so bookings held on the old
+// objects are dropped and their customers told; the reloaded flights start clean
+class ScheduleReloadTest {
+    private final Airport origin = new Airport("ATL", "Hartsfield-Jackson", "Atlanta");
+    private final Airport destination = new Airport("MIA", "Miami International", "Miami");
+
+    @BeforeEach
+    void emptySchedule() {
+        FlightSchedule.attachJournal(null);
+        FlightSchedule.setFlights(new ArrayList<>());
+    }
+
+    @Test
+    void cancelAfterReloadLeavesReloadedFlightAlone() throws Exception {
+        FlightSchedule.addFlight(flight("RL100", 10), false);
+        Customer customer = customer("Reload Customer");
+        assertTrue(customer.bookSeats("RL100", 2).isConfirmed());
+
+        Flight reloaded = flight("RL100", 10);
+        FlightSchedule.setFlights(new ArrayList<>(List.of(reloaded)));
+
+        assertTrue(customer.getBookings().isEmpty());
+        assertThrows(Exception.class, () -> customer.cancelBooking("RL100"));
+        assertEquals(10, reloaded.getAvailableSeats());
+        assertTrue(PassengerManifest.getPassengers("RL100").isEmpty());
+        NotificationDispatcher.getDefault().awaitDelivery(customer, 5000);
+        assertTrue(customer.getNotificationInbox().peek(0, 1).get(0).getMessage().contains("reloaded"));
+    }
+
+    @Test
+    void bookingOnReloadedFlightCanBeCancelled() throws Exception {
+        FlightSchedule.addFlight(flight("RL200", 10), false);
+        Customer customer = customer("Rebooking Customer");
+        assertTrue(customer.bookSeats("RL200", 3).isConfirmed());
+
+        Flight reloaded = flight("RL200", 10);
+        FlightSchedule.setFlights(new ArrayList<>(List.of(reloaded)));
+        assertTrue(customer.bookSeats("RL200", 1).isConfirmed());
+        customer.cancelBooking("RL200");
+
+        assertEquals(10, reloaded.getAvailableSeats());
+        assertTrue(customer.getBookings().isEmpty());
+    }
+
+    @Test
+    void reloadKeepingTheSameFlightKeepsItsBookings() throws Exception {
+        Flight flight = flight("RL300", 10);
+        FlightSchedule.addFlight(flight, false);
+        Customer customer = customer("Staying Customer");
+        assertTrue(customer.bookSeats("RL300", 2).isConfirmed());
+
+        FlightSchedule.setFlights(new ArrayList<>(List.of(flight)));
+        assertEquals(2, customer.getBookings().size());
+        customer.cancelBooking("RL300");
+
+        assertEquals(9, flight.getAvailableSeats());
+        assertEquals(Integer.valueOf(1), PassengerManifest.getPassengers("RL300").get(customer));
+    }
+
+    @Test
+    void reloadWithoutTheFlightClosesItsWaitlist() {
+        FlightSchedule.addFlight(flight("RL400", 1), false);
+        assertTrue(customer("First").bookSeats("RL400", 1).isConfirmed());
+        Customer waiting = customer("Waiting");
+        assertEquals(BookingStatus.WAITLISTED, waiting.bookOrWaitlist("RL400", 1).getStatus());
+
+        FlightSchedule.setFlights(new ArrayList<>());
+
+        assertEquals(0, FlightWaitlist.getWaitingCount("RL400"));
+    }
+
+    @Test
+    void reloadedFlightPromotesWaitlist() {
+        FlightSchedule.addFlight(flight("RL500", 1), false);
+        assertTrue(customer("First").bookSeats("RL500", 1).isConfirmed());
+        Customer waiting = customer("Waiting");
+        assertEquals(BookingStatus.WAITLISTED, waiting.bookOrWaitlist("RL500", 1).getStatus());
+
+        Flight reloaded = flight("RL500", 1);
+        FlightSchedule.setFlights(new ArrayList<>(List.of(reloaded)));
+
+        assertEquals(0, FlightWaitlist.getWaitingCount("RL500"));
+        assertEquals(List.of(reloaded), waiting.getBookings());
+        assertEquals(0, reloaded.getAvailableSeats());
+    }
+
+    private Flight flight(String id, int seats) {
+        return new Flight(id, origin, destination, "2024-06-04 15:00", "2024-06-04 17:00",
+                new Airplane("RL-" + id, "E175", seats));
+    }
+
+    private static Customer customer(String name) {
+        Customer customer = new Customer(name, "reload@example.com");
+        customer.setQuiet(true);
+        return customer;
+    }
+}
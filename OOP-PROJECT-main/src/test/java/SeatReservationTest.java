@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Seats are taken with a CAS on the flight, so concurrent bookings can never sell more
+// seats than the flight has
+class SeatReservationTest {
+    private static final int THREADS = 16;
+
+    private final Airport origin = new Airport("SFO", "San Francisco International", "San Francisco");
+    private final Airport destination = new Airport("SEA", "Seattle-Tacoma", "Seattle");
+
+    @BeforeEach
+    void emptySchedule() {
+        FlightSchedule.attachJournal(null);
+        FlightSchedule.setFlights(new ArrayList<>());
+    }
+
+    @Test
+    void tryReserveRefusesWhatDoesNotFit() {
+        Flight flight = flight("SR100", 3);
+
+        assertTrue(flight.tryReserve(2));
+        assertFalse(flight.tryReserve(2));
+        assertTrue(flight.tryReserve(1));
+        assertEquals(0, flight.getAvailableSeats());
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int seats = 1000;
+        Flight flight = flight("SR200", seats);
+        AtomicInteger reserved = new AtomicInteger();
+        runConcurrently(() -> {
+            // Mixed sizes so partial fits near the end are exercised too
+            for (int i = 0; i < 200; i++) {
+                int n = 1 + i % 3;
+                if (flight.tryReserve(n)) {
+                    reserved.addAndGet(n);
+                }
+            }
+        });
+
+        assertEquals(seats - reserved.get(), flight.getAvailableSeats());
+        assertTrue(flight.getAvailableSeats() >= 0 && flight.getAvailableSeats() < 3);
+    }
+
+    @Test
+    void concurrentReserveAndReleaseKeepsCountExact() throws Exception {
+        Flight flight = flight("SR300", 50);
+        runConcurrently(() -> {
+            for (int i = 0; i < 2000; i++) {
+                if (flight.tryReserve(1)) {
+                    assertTrue(flight.getAvailableSeats() >= 0);
+                    flight.release(1);
+                }
+            }
+        });
+
+        assertEquals(50, flight.getAvailableSeats());
+    }
+
+    @Test
+    void concurrentCustomersBookExactlyTheCapacity() throws Exception {
+        int seats = 120;
+        Flight flight = flight("SR400", seats);
+        FlightSchedule.addFlight(flight, false);
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger customers = new AtomicInteger();
+        runConcurrently(() -> {
+            Customer customer = new Customer("Customer " + customers.incrementAndGet(), "c@example.com");
+            customer.setQuiet(true);
+            for (int i = 0; i < 20; i++) {
+                if (customer.bookSeats("SR400", 1).isConfirmed()) {
+                    confirmed.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(seats, confirmed.get());
+        assertEquals(0, flight.getAvailableSeats());
+        int booked = 0;
+        for (int n : PassengerManifest.getPassengers("SR400").values()) {
+            booked += n;
+        }
+        assertEquals(seats, booked);
+    }
+
+    private Flight flight(String id, int seats) {
+        return new Flight(id, origin, destination, "2024-06-03 09:00", "2024-06-03 11:00",
+                new Airplane("SR-" + id, "B737-800", seats));
+    }
+
+    // Run the task on THREADS threads released at the same moment; rethrows the first failure
+    private static void runConcurrently(ThrowingRunnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}